@@ -0,0 +1,30 @@
+import bench.Workload;
+import java.util.Random;
+
+/** willIntersect between random units and the enemy base of a default engine. */
+public class BaseIntersectWorkload implements Workload {
+    private Base base;
+    private int[] x, y, w, h;
+
+    @Override
+    public void setup(int checks) {
+        base = new GameEngine(new UnitFactory(false)).getEnemyBase();
+        Random random = new Random(5);
+        x = new int[checks]; y = new int[checks]; w = new int[checks]; h = new int[checks];
+        for (int i = 0; i < checks; i++) {
+            x[i] = base.x - 120 + random.nextInt(200);
+            y[i] = base.y + random.nextInt(base.height);
+            w[i] = 40 + random.nextInt(30);
+            h[i] = 40 + random.nextInt(30);
+        }
+    }
+
+    @Override
+    public int run() {
+        int hits = 0;
+        for (int i = 0; i < x.length; i++) {
+            if (LaneCombat.willIntersect(x[i], y[i], w[i], h[i], 2, base)) hits++;
+        }
+        return hits;
+    }
+}
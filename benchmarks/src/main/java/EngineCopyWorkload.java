@@ -0,0 +1,20 @@
+import bench.Workload;
+
+/** GameEngine.copyStateFrom of a three-lane LaneStress scenario into a warm scratch engine. */
+public class EngineCopyWorkload implements Workload {
+    private GameEngine source;
+    private GameEngine copy;
+
+    @Override
+    public void setup(int unitsPerSide) {
+        source = LaneStress.buildScenario(unitsPerSide, 3);
+        copy = new GameEngine(new UnitFactory(false), 3, 0);
+        copy.copyStateFrom(source);
+    }
+
+    @Override
+    public int run() {
+        copy.copyStateFrom(source);
+        return copy.lane(0).size();
+    }
+}
@@ -0,0 +1,17 @@
+import bench.Workload;
+
+/** A new engine per match on a shared factory, as the batch runners used to do. */
+public class EngineRebuildWorkload implements Workload {
+    final UnitFactory factory = new UnitFactory(false);
+    long seed;
+
+    @Override
+    public void setup(int ignored) {
+    }
+
+    @Override
+    public int run() {
+        GameEngine engine = new GameEngine(factory, GameEngine.DEFAULT_LANE_COUNT, seed++);
+        return engine.getGold();
+    }
+}
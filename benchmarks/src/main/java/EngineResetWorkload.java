@@ -0,0 +1,15 @@
+/** One engine reset in place per match. */
+public class EngineResetWorkload extends EngineRebuildWorkload {
+    private GameEngine engine;
+
+    @Override
+    public void setup(int ignored) {
+        engine = new GameEngine(factory, GameEngine.DEFAULT_LANE_COUNT, 0);
+    }
+
+    @Override
+    public int run() {
+        engine.reset(seed++);
+        return engine.getGold();
+    }
+}
@@ -0,0 +1,8 @@
+/** Only the lane copy that LaneUpdateWorkload does before every update. */
+public class LaneRestoreWorkload extends LaneUpdateWorkload {
+    @Override
+    public int run() {
+        restore();
+        return engine.lane(0).size();
+    }
+}
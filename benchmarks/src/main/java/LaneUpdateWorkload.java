@@ -0,0 +1,28 @@
+import bench.Workload;
+
+/**
+ * A LaneStress scenario on one lane. Each run puts the lane back to its
+ * starting crowd and advances it by one serial, sweep-based update.
+ */
+public class LaneUpdateWorkload implements Workload {
+    GameEngine engine;
+    private final LaneStore start = new LaneStore();
+
+    @Override
+    public void setup(int unitsPerSide) {
+        engine = LaneStress.buildScenario(unitsPerSide);
+        engine.setSweepCombat(true);
+        start.copyFrom(engine.lane(0));
+    }
+
+    @Override
+    public int run() {
+        restore();
+        engine.updateAllLanes();
+        return engine.lane(0).size();
+    }
+
+    void restore() {
+        engine.lane(0).copyFrom(start);
+    }
+}
@@ -0,0 +1,50 @@
+import bench.Workload;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * A GamePanel that never starts its loops, shown a fixed RenderState and
+ * painted offscreen through paintComponent.
+ */
+public class PaintWorkload implements Workload {
+    private static final int HEIGHT = 520;
+
+    private GamePanel panel;
+    private BufferedImage canvas;
+
+    @Override
+    public void setup(int unitsPerLane) {
+        UnitFactory factory = new UnitFactory();
+        GameEngine engine = new GameEngine(factory);
+        Random random = new Random(11);
+        UnitType[] types = UnitType.values();
+        for (int lane = 0; lane < engine.getLaneCount(); lane++) {
+            for (int i = 0; i < unitsPerLane; i++) {
+                UnitType type = types[random.nextInt(types.length)];
+                engine.lane(lane).add(factory.create(type, factory.team(type),
+                        random.nextInt(GameEngine.FIELD_WIDTH - 60), engine.laneY(lane) + random.nextInt(30), lane));
+            }
+            engine.lane(lane).savePositions();
+        }
+
+        RenderState state = new RenderState(engine.getLaneCount());
+        state.copyFrom(engine, System.nanoTime());
+        panel = new GamePanel(null, false);
+        panel.setSize(GameEngine.FIELD_WIDTH, HEIGHT);
+        panel.doLayout();
+        panel.showState(state);
+        canvas = new BufferedImage(GameEngine.FIELD_WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    }
+
+    @Override
+    public int run() {
+        Graphics2D g = canvas.createGraphics();
+        try {
+            panel.paintComponent(g);
+        } finally {
+            g.dispose();
+        }
+        return canvas.getRGB(500, 200);
+    }
+}
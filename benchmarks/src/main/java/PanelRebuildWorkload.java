@@ -0,0 +1,35 @@
+import bench.Workload;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/** A new offscreen GamePanel per run, sized, laid out and painted once. */
+public class PanelRebuildWorkload implements Workload {
+    static final int HEIGHT = 520;
+
+    final BufferedImage canvas = new BufferedImage(GameEngine.FIELD_WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    final RenderState state = new RenderState(GameEngine.DEFAULT_LANE_COUNT);
+
+    @Override
+    public void setup(int ignored) {
+    }
+
+    @Override
+    public int run() {
+        GamePanel panel = new GamePanel(null, false);
+        panel.setSize(GameEngine.FIELD_WIDTH, HEIGHT);
+        panel.doLayout();
+        return paintFirstFrame(panel);
+    }
+
+    int paintFirstFrame(GamePanel panel) {
+        state.tick = 0;
+        panel.showState(state);
+        Graphics2D g = canvas.createGraphics();
+        try {
+            panel.paintComponent(g);
+        } finally {
+            g.dispose();
+        }
+        return canvas.getRGB(500, 200);
+    }
+}
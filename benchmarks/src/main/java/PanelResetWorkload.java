@@ -0,0 +1,17 @@
+/** One warm offscreen GamePanel, reset and painted once per run. */
+public class PanelResetWorkload extends PanelRebuildWorkload {
+    private GamePanel panel;
+
+    @Override
+    public void setup(int ignored) {
+        panel = new GamePanel(null, false);
+        panel.setSize(GameEngine.FIELD_WIDTH, HEIGHT);
+        panel.doLayout();
+    }
+
+    @Override
+    public int run() {
+        panel.reset();
+        return paintFirstFrame(panel);
+    }
+}
@@ -0,0 +1,19 @@
+import bench.Workload;
+
+/** Captures a three-lane LaneStress scenario into the same GameSnapshot each run. */
+public class SnapshotCaptureWorkload implements Workload {
+    GameEngine engine;
+    final GameSnapshot snapshot = new GameSnapshot();
+
+    @Override
+    public void setup(int unitsPerSide) {
+        engine = LaneStress.buildScenario(unitsPerSide, 3);
+        snapshot.captureFrom(engine);
+    }
+
+    @Override
+    public int run() {
+        snapshot.captureFrom(engine);
+        return snapshot.size();
+    }
+}
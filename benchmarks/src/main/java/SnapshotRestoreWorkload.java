@@ -0,0 +1,8 @@
+/** Restores the engine from the snapshot taken at setup. */
+public class SnapshotRestoreWorkload extends SnapshotCaptureWorkload {
+    @Override
+    public int run() {
+        snapshot.restoreInto(engine);
+        return engine.lane(0).size();
+    }
+}
@@ -0,0 +1,11 @@
+import java.awt.Image;
+
+/** SpriteStore.get after the cache is cleared: decode the PNG and rescale it. */
+public class SpriteColdWorkload extends SpriteWarmWorkload {
+    @Override
+    public int run() {
+        SpriteStore.clear();
+        Image image = SpriteStore.get(path, WIDTH, HEIGHT);
+        return image.getWidth(null);
+    }
+}
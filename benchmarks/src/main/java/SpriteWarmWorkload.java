@@ -0,0 +1,33 @@
+import bench.Workload;
+import java.awt.Image;
+import java.io.File;
+
+/** SpriteStore.get of one unit sprite at its on-screen size, already cached. */
+public class SpriteWarmWorkload implements Workload {
+    static final int WIDTH = 60, HEIGHT = 60;
+
+    String path;
+
+    @Override
+    public void setup(int ignored) {
+        path = new File(imagesDir(), "unit1.png").getPath();
+        if (SpriteStore.get(path) == null) {
+            throw new IllegalStateException("Cannot read sprite " + path + " (set -Dbench.images)");
+        }
+        SpriteStore.get(path, WIDTH, HEIGHT);
+    }
+
+    @Override
+    public int run() {
+        Image image = SpriteStore.get(path, WIDTH, HEIGHT);
+        return image.getWidth(null);
+    }
+
+    /** -Dbench.images, else src/images seen from the project root or from benchmarks/. */
+    static File imagesDir() {
+        String configured = System.getProperty("bench.images");
+        if (configured != null) return new File(configured);
+        File fromRoot = new File("src/images");
+        return fromRoot.isDirectory() ? fromRoot : new File("../src/images");
+    }
+}
@@ -0,0 +1,22 @@
+import bench.Workload;
+
+/** UnitFactory.create for each unit type in turn, on its own team. */
+public class UnitCreateWorkload implements Workload {
+    private static final UnitType[] TYPES = UnitType.values();
+
+    private UnitFactory factory;
+    private int next;
+
+    @Override
+    public void setup(int ignored) {
+        factory = new UnitFactory();
+    }
+
+    @Override
+    public int run() {
+        UnitType type = TYPES[next];
+        next = (next + 1) % TYPES.length;
+        Unit.Team team = factory.team(type);
+        return factory.create(type, team, 100, 200, 0).hp();
+    }
+}
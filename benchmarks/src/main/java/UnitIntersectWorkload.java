@@ -0,0 +1,33 @@
+import bench.Workload;
+import java.util.Random;
+
+/** willIntersect over a fixed set of random unit pairs that meet about half the time. */
+public class UnitIntersectWorkload implements Workload {
+    private int[] ax, ay, aw, ah, bx, by, bw, bh;
+
+    @Override
+    public void setup(int checks) {
+        Random random = new Random(3);
+        ax = new int[checks]; ay = new int[checks]; aw = new int[checks]; ah = new int[checks];
+        bx = new int[checks]; by = new int[checks]; bw = new int[checks]; bh = new int[checks];
+        for (int i = 0; i < checks; i++) {
+            ax[i] = random.nextInt(200);
+            ay[i] = random.nextInt(30);
+            aw[i] = 40 + random.nextInt(30);
+            ah[i] = 40 + random.nextInt(30);
+            bx[i] = random.nextInt(200);
+            by[i] = random.nextInt(30);
+            bw[i] = 40 + random.nextInt(30);
+            bh[i] = 40 + random.nextInt(30);
+        }
+    }
+
+    @Override
+    public int run() {
+        int hits = 0;
+        for (int i = 0; i < ax.length; i++) {
+            if (LaneCombat.willIntersect(ax[i], ay[i], aw[i], ah[i], 2, bx[i], by[i], bw[i], bh[i], -2)) hits++;
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,36 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/** LaneCombat.willIntersect on random unit pairs and unit/base pairs, per check. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class CollisionBenchmark {
+    static final int CHECKS = 1024;
+
+    private Workload units;
+    private Workload bases;
+
+    @Setup
+    public void setup() {
+        units = Workload.create("UnitIntersectWorkload", CHECKS);
+        bases = Workload.create("BaseIntersectWorkload", CHECKS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHECKS)
+    public int unitVsUnit() {
+        return units.run();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHECKS)
+    public int unitVsBase() {
+        return bases.run();
+    }
+}
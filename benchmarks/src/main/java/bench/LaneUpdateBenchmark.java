@@ -0,0 +1,40 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * One serial lane update (move, fight, remove the dead) on a single lane
+ * holding the given number of units per side. Every operation first restores
+ * the lane to its starting crowd; restoreOnly measures that copy alone so
+ * it can be subtracted.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class LaneUpdateBenchmark {
+    @Param({"10", "100", "1000", "10000"})
+    int unitsPerSide;
+
+    private Workload update;
+    private Workload restore;
+
+    @Setup
+    public void setup() {
+        update = Workload.create("LaneUpdateWorkload", unitsPerSide);
+        restore = Workload.create("LaneRestoreWorkload", unitsPerSide);
+    }
+
+    @Benchmark
+    public int updateLane() {
+        return update.run();
+    }
+
+    @Benchmark
+    public int restoreOnly() {
+        return restore.run();
+    }
+}
@@ -0,0 +1,58 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Starting a new match and painting its first frame offscreen: building a
+ * fresh GamePanel (what a retry used to do) against GamePanel.reset on a
+ * warm one. The engine-only pair is what the batch runners pay per match.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class MatchRestartBenchmark {
+    private Workload panelRebuild;
+    private Workload panelReset;
+    private Workload engineRebuild;
+    private Workload engineReset;
+
+    @Setup
+    public void setup() {
+        panelRebuild = Workload.create("PanelRebuildWorkload", 0);
+        panelReset = Workload.create("PanelResetWorkload", 0);
+        engineRebuild = Workload.create("EngineRebuildWorkload", 0);
+        engineReset = Workload.create("EngineResetWorkload", 0);
+    }
+
+    /**
+     * Each op builds a whole Swing panel and leaves about 2 MB of garbage,
+     * so single iterations swing with GC; more of them, over several forks,
+     * keep the error well under the score.
+     */
+    @Benchmark
+    @Warmup(iterations = 5, time = 2)
+    @Measurement(iterations = 10, time = 1)
+    @Fork(value = 3, jvmArgsAppend = "-Djava.awt.headless=true")
+    public int panelRebuild() {
+        return panelRebuild.run();
+    }
+
+    @Benchmark
+    public int panelReset() {
+        return panelReset.run();
+    }
+
+    @Benchmark
+    public int engineRebuild() {
+        return engineRebuild.run();
+    }
+
+    @Benchmark
+    public int engineReset() {
+        return engineReset.run();
+    }
+}
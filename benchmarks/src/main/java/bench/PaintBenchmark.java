@@ -0,0 +1,31 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * GamePanel.paintComponent into a 1000x520 BufferedImage, on an empty field
+ * and with the given number of units spread over each lane.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PaintBenchmark {
+    @Param({"0", "200"})
+    int unitsPerLane;
+
+    private Workload paint;
+
+    @Setup
+    public void setup() {
+        paint = Workload.create("PaintWorkload", unitsPerLane);
+    }
+
+    @Benchmark
+    public int paintComponent() {
+        return paint.run();
+    }
+}
@@ -0,0 +1,46 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * GameSnapshot capture into a reused buffer and restore into the engine,
+ * and the direct engine-to-engine copy the rollout planner forks with, for
+ * three lanes holding the given number of units per side each.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class SnapshotBenchmark {
+    @Param({"10", "1000"})
+    int unitsPerSide;
+
+    private Workload capture;
+    private Workload restore;
+    private Workload copy;
+
+    @Setup
+    public void setup() {
+        capture = Workload.create("SnapshotCaptureWorkload", unitsPerSide);
+        restore = Workload.create("SnapshotRestoreWorkload", unitsPerSide);
+        copy = Workload.create("EngineCopyWorkload", unitsPerSide);
+    }
+
+    @Benchmark
+    public int capture() {
+        return capture.run();
+    }
+
+    @Benchmark
+    public int restore() {
+        return restore.run();
+    }
+
+    @Benchmark
+    public int copy() {
+        return copy.run();
+    }
+}
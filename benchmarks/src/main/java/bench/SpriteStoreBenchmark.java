@@ -0,0 +1,36 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * SpriteStore.get for a unit-sized sprite: cold (cache cleared, so the PNG
+ * is decoded and rescaled) and warm (a map lookup). Sprites are read from
+ * src/images, or from the directory in -Dbench.images.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class SpriteStoreBenchmark {
+    private Workload cold;
+    private Workload warm;
+
+    @Setup
+    public void setup() {
+        cold = Workload.create("SpriteColdWorkload", 0);
+        warm = Workload.create("SpriteWarmWorkload", 0);
+    }
+
+    @Benchmark
+    public int cold() {
+        return cold.run();
+    }
+
+    @Benchmark
+    public int warm() {
+        return warm.run();
+    }
+}
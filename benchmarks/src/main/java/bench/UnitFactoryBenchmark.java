@@ -0,0 +1,25 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/** UnitFactory.create cycling through every unit type, sprites cached. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class UnitFactoryBenchmark {
+    private Workload create;
+
+    @Setup
+    public void setup() {
+        create = Workload.create("UnitCreateWorkload", 0);
+    }
+
+    @Benchmark
+    public int create() {
+        return create.run();
+    }
+}
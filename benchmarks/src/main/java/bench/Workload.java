@@ -0,0 +1,25 @@
+package bench;
+
+/**
+ * One measured operation on the game code. JMH refuses benchmark classes in
+ * the default package, and named packages cannot see the game, which lives
+ * in the default package. So each benchmark drives an implementation of this
+ * interface that sits in the default package next to the game.
+ */
+public interface Workload {
+    /** Builds the workload's state; size is the benchmark's parameter (units, checks...). */
+    void setup(int size);
+
+    /** Runs the operation once and returns something derived from it, for the blackhole. */
+    int run();
+
+    static Workload create(String className, int size) {
+        try {
+            Workload workload = (Workload) Class.forName(className).getDeclaredConstructor().newInstance();
+            workload.setup(size);
+            return workload;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create workload " + className, e);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives the enemy spawns of a live match with a RolloutPlanner on its own
+ * thread. The simulation thread calls {@link #afterTicks} between batches
+ * of ticks. When the next enemy or elite spawn has no plan yet and no
+ * search is running, that copies the engine into the planner's root (a few
+ * array copies) and wakes the planner; once the planner has decided, the
+ * next call applies the choice as an ENEMY_PLAN command, on a tick boundary
+ * and recorded in the replay like any input. Neither the simulation nor
+ * the EDT ever waits for a search.
+ */
+public final class AiOpponent {
+    private static final int IDLE = 0, PLANNING = 1, DECIDED = 2;
+    private static final long STATE_MASK = 3, GENERATION_ONE = 4;
+
+    private final RolloutPlanner planner;
+    private final long budgetNanos;
+    private final Thread thread;
+    private GameCommand decided;    // written before DECIDED, read after it
+
+    // The state in the low two bits and above them a generation, bumped by
+    // reset so a search that started in an old match is dropped. Both change
+    // in one compare-and-set, so a search cannot finish into a new match.
+    private final AtomicLong status = new AtomicLong(IDLE);
+    private volatile boolean running = true;
+
+    public AiOpponent(RolloutPlanner planner, long budgetNanos) {
+        this.planner = planner;
+        this.budgetNanos = budgetNanos;
+        this.thread = new Thread(this::run, "ai-opponent");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Simulation thread: applies a finished decision, and starts a search when a spawn needs one. */
+    void afterTicks(GameEngine engine) {
+        long s = status.get();
+        if (state(s) == DECIDED) {
+            GameCommand command = decided;
+            decided = null;
+            if (!status.compareAndSet(s, with(s, IDLE))) return;
+            engine.apply(command);
+            s = with(s, IDLE);
+        }
+        if (state(s) != IDLE || engine.isGameOver()) return;
+        if (engine.hasEnemyPlan(GameEngine.POOL_ENEMY) && engine.hasEnemyPlan(GameEngine.POOL_ELITE)) return;
+
+        planner.root().copyStateFrom(engine);
+        if (status.compareAndSet(s, with(s, PLANNING))) LockSupport.unpark(thread);
+    }
+
+    /**
+     * Drops any decision not yet applied, for a new match. A search still
+     * running finishes against its old root and is then discarded. Call
+     * while the simulation is stopped.
+     */
+    public void reset() {
+        long s;
+        do {
+            s = status.get();
+        } while (!status.compareAndSet(s, with(s + GENERATION_ONE, (state(s) == PLANNING) ? PLANNING : IDLE)));
+        if (state(s) == DECIDED) decided = null;
+    }
+
+    public void stop() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    private void run() {
+        while (running) {
+            long s = status.get();
+            if (state(s) != PLANNING) {
+                LockSupport.park(this);
+                continue;
+            }
+            RolloutPlanner.Decision decision = planner.plan(budgetNanos);
+            // Stamped when applied; the engine records it against its next tick.
+            GameCommand command = (decision != null) ? decision.toCommand(0) : null;
+            if (command != null) decided = command;
+            if (!status.compareAndSet(s, with(s, (command != null) ? DECIDED : IDLE))) {
+                // Reset while searching: still PLANNING, in a newer generation.
+                decided = null;
+                status.updateAndGet(now -> (state(now) == PLANNING) ? with(now, IDLE) : now);
+            }
+        }
+        planner.close();
+    }
+
+    private static int state(long status) {
+        return (int) (status & STATE_MASK);
+    }
+
+    private static long with(long status, int state) {
+        return (status & ~STATE_MASK) | state;
+    }
+}
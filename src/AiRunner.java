@@ -0,0 +1,85 @@
+/**
+ * Pits the RolloutPlanner against the scripted opponents headless, and
+ * reports how strong it is and how many rollouts it fits in its budget.
+ *
+ * With side "enemy" the planner picks lane and type of every enemy and
+ * elite spawn against BalanceRunner's mixed build order; with side
+ * "player" it plays the player (one decision every DECIDE_EVERY ticks)
+ * against the usual random spawns. Each seed is also played without the
+ * planner, so the win rates compare like for like.
+ *
+ * Usage: java AiRunner [matches] [enemy|player] [budgetMs] [threads] [horizonTicks] [seed]
+ */
+public class AiRunner {
+    private static final int DECIDE_EVERY = 10;
+    private static final long MAX_TICKS = 20_000;
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        int matches = (args.length > 0) ? Integer.parseInt(args[0]) : 20;
+        RolloutPlanner.Side side = (args.length > 1 && args[1].equals("player"))
+                ? RolloutPlanner.Side.PLAYER : RolloutPlanner.Side.ENEMY;
+        long budgetMs = (args.length > 2) ? Long.parseLong(args[2]) : 5;
+        int threads = (args.length > 3) ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        int horizon = (args.length > 4) ? Integer.parseInt(args[4]) : 150;
+        long seed = (args.length > 5) ? Long.parseLong(args[5]) : 1L;
+
+        UnitDefinitions definitions = UnitDefinitions.configured();
+        GameEngine engine = new GameEngine(new UnitFactory(definitions, false), GameEngine.DEFAULT_LANE_COUNT, 0);
+        BalanceRunner.Strategy mixed = BalanceRunner.strategies()[BalanceRunner.strategies().length - 1];
+        GameRandom seeds = new GameRandom(seed);
+
+        int winsWith = 0, winsWithout = 0;
+        long decisions = 0, rollouts = 0, planNanos = 0;
+        try (RolloutPlanner planner = new RolloutPlanner(definitions, GameEngine.DEFAULT_LANE_COUNT,
+                side, threads, horizon, seed)) {
+            for (int m = 0; m < matches; m++) {
+                long matchSeed = seeds.nextLong();
+
+                engine.reset(matchSeed);
+                HeadlessRunner.playMatch(engine, mixed.buildOrder, MAX_TICKS);
+                if (engine.playerWon()) winsWithout++;
+
+                engine.reset(matchSeed);
+                int next = 0;
+                while (!engine.isGameOver() && engine.getTick() < MAX_TICKS) {
+                    boolean decide = (side == RolloutPlanner.Side.ENEMY)
+                            ? !engine.hasEnemyPlan(GameEngine.POOL_ENEMY) || !engine.hasEnemyPlan(GameEngine.POOL_ELITE)
+                            : engine.getTick() % DECIDE_EVERY == 0;
+                    if (decide) {
+                        planner.root().copyStateFrom(engine);
+                        long start = System.nanoTime();
+                        RolloutPlanner.Decision d = planner.plan(budgetMs * 1_000_000);
+                        planNanos += System.nanoTime() - start;
+                        if (d != null) {
+                            decisions++;
+                            rollouts += d.rollouts;
+                            GameCommand command = d.toCommand(engine.getTick() + 1);
+                            if (command != null) engine.apply(command);
+                        }
+                    }
+                    if (side == RolloutPlanner.Side.ENEMY) {
+                        // The scripted player from HeadlessRunner, one tick at a time.
+                        UnitType type = mixed.buildOrder[next];
+                        if (engine.getGold() >= engine.cost(type)
+                                && engine.spawnPlayer(type, HeadlessRunner.busiestLane(engine))) {
+                            next = (next + 1) % mixed.buildOrder.length;
+                        }
+                    }
+                    engine.step();
+                }
+                if (engine.playerWon()) winsWith++;
+            }
+        }
+
+        String opponent = (side == RolloutPlanner.Side.ENEMY) ? "mixed build order vs planner enemy"
+                : "planner player vs random enemy";
+        System.out.printf("%d matches, %s, budget %d ms, %d threads, horizon %d ticks%n",
+                matches, opponent, budgetMs, threads, horizon);
+        System.out.printf("player wins: %d with planner, %d with the mixed build order vs random spawns%n",
+                winsWith, winsWithout);
+        System.out.printf("%d decisions, %.0f rollouts each, %.0f rollouts/s%n",
+                decisions, rollouts / (double) Math.max(1, decisions), rollouts / (planNanos / 1e9));
+    }
+}
@@ -0,0 +1,45 @@
+import java.lang.management.ManagementFactory;
+
+/**
+ * Fails (exit code 1) if the lane update path allocates anything once warmed
+ * up. Measures this thread's allocated bytes around a batch of ticks on a
+ * crowded lane where units fight, die and get compacted away.
+ * Usage: java AllocationCheck [unitsPerSide] [ticks]
+ */
+public class AllocationCheck {
+    private static final int WARMUP_TICKS = 200;
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        int units = (args.length > 0) ? Integer.parseInt(args[0]) : 2_000;
+        int ticks = (args.length > 1) ? Integer.parseInt(args[1]) : 2_000;
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        GameEngine engine = LaneStress.buildScenario(units);
+        for (int t = 0; t < WARMUP_TICKS; t++) {
+            engine.updateAllLanes();
+        }
+
+        // Cost of the measurement itself, subtracted below.
+        long probe = threads.getThreadAllocatedBytes(threadId);
+        long overhead = threads.getThreadAllocatedBytes(threadId) - probe;
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int t = 0; t < ticks; t++) {
+            engine.updateAllLanes();
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before - overhead;
+
+        System.out.printf("%d ticks, %d bytes allocated (%.2f bytes/tick), %d units left%n",
+                ticks, allocated, allocated / (double) ticks, engine.lane(0).size());
+        if (allocated > 0) {
+            System.out.println("FAIL: lane update allocates");
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+}
@@ -0,0 +1,83 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * The parts of the battlefield that rarely change (lane strips, centre
+ * lines, the selected-lane highlight and the base bodies) rendered once into
+ * an offscreen image. Each frame the panel only blits it; the image is
+ * rebuilt when the panel size, the selected lane or a base's position
+ * changes.
+ */
+public final class BackgroundLayer {
+    private static final Color LANE_COLOR = new Color(255, 240, 200);
+    private static final Color CENTER_LINE_COLOR = new Color(210, 170, 80);
+    private static final Color HIGHLIGHT_COLOR = new Color(255, 220, 0, 90);
+
+    private final int[] laneY;
+    private final int laneHeight;
+    private BufferedImage image;
+
+    // What the current image was drawn for.
+    private int selectedLane = -1;
+    private int playerBaseX, enemyBaseX;
+    private int rebuilds;
+
+    public BackgroundLayer(int[] laneY, int laneHeight) {
+        this.laneY = laneY.clone();
+        this.laneHeight = laneHeight;
+    }
+
+    /**
+     * Draws the layer at the origin, rebuilding it first if anything it
+     * depends on has changed since the last call.
+     */
+    public void draw(Graphics g, int width, int height, int selectedLane,
+                     Base playerBase, Color playerColor, Base enemyBase, Color enemyColor) {
+        if (width <= 0 || height <= 0) return;
+        if (image == null || image.getWidth() != width || image.getHeight() != height
+                || this.selectedLane != selectedLane
+                || playerBaseX != playerBase.x || enemyBaseX != enemyBase.x) {
+            rebuild(width, height, selectedLane, playerBase, playerColor, enemyBase, enemyColor);
+        }
+        g.drawImage(image, 0, 0, null);
+    }
+
+    /** How many times the image has been rendered, for checking it stays cached. */
+    public int getRebuildCount() {
+        return rebuilds;
+    }
+
+    private void rebuild(int width, int height, int selectedLane,
+                         Base playerBase, Color playerColor, Base enemyBase, Color enemyColor) {
+        if (image == null || image.getWidth() != width || image.getHeight() != height) {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        }
+        this.selectedLane = selectedLane;
+        playerBaseX = playerBase.x;
+        enemyBaseX = enemyBase.x;
+        rebuilds++;
+
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+
+            for (int y : laneY) {
+                g.setColor(LANE_COLOR);
+                g.fillRect(0, y - laneHeight / 2, width, laneHeight);
+                g.setColor(CENTER_LINE_COLOR);
+                g.drawLine(0, y, width, y);
+            }
+
+            if (selectedLane >= 0 && selectedLane < laneY.length) {
+                g.setColor(HIGHLIGHT_COLOR);
+                g.fillRect(0, laneY[selectedLane] - laneHeight / 2, width, laneHeight);
+            }
+
+            playerBase.drawBody(g, playerColor);
+            enemyBase.drawBody(g, enemyColor);
+        } finally {
+            g.dispose();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Monte Carlo balance check for the unit stats in UnitFactory. For every
+ * player unit type a scripted player builds only that type (plus one mixed
+ * build order for reference) against the normal enemy and elite spawns, and
+ * the runner reports win rate, match length and gold efficiency with 95%
+ * confidence intervals.
+ *
+ * Matches run on a work-stealing ForkJoinPool. Every task splits its own
+ * GameRandom stream for its subtasks, so each match gets the same seed no
+ * matter how many workers ran it or which one did.
+ * Usage: java BalanceRunner [matchesPerStrategy] [threads] [seed] [maxTicks]
+ */
+public class BalanceRunner {
+    // Matches a leaf task plays before it stops splitting.
+    private static final int LEAF_MATCHES = 8;
+    private static final double Z95 = 1.96;
+
+    /** A fixed build order, repeated for the whole match. */
+    static final class Strategy {
+        final String name;
+        final UnitType[] buildOrder;
+
+        Strategy(String name, UnitType... buildOrder) {
+            this.name = name;
+            this.buildOrder = buildOrder;
+        }
+    }
+
+    /** Running sums for one strategy; tasks fill their own and merge on join. */
+    static final class Stats {
+        long matches, wins, timeouts;
+        double ticks, ticksSq;
+        double efficiency, efficiencySq;   // enemy base hp removed per 100 gold spent
+
+        void add(GameEngine engine, long goldSpent, int enemyBaseStartHp, long maxTicks) {
+            matches++;
+            if (engine.playerWon()) wins++;
+            if (!engine.isGameOver() && engine.getTick() >= maxTicks) timeouts++;
+            double t = engine.getTick();
+            ticks += t;
+            ticksSq += t * t;
+            int damage = enemyBaseStartHp - Math.max(0, engine.getEnemyBase().hp);
+            double e = (goldSpent > 0) ? damage * 100.0 / goldSpent : 0;
+            efficiency += e;
+            efficiencySq += e * e;
+        }
+
+        Stats merge(Stats other) {
+            matches += other.matches;
+            wins += other.wins;
+            timeouts += other.timeouts;
+            ticks += other.ticks;
+            ticksSq += other.ticksSq;
+            efficiency += other.efficiency;
+            efficiencySq += other.efficiencySq;
+            return this;
+        }
+    }
+
+    /** Plays matches [from, to) of one strategy, splitting in half until the range is small. */
+    static final class MatchTask extends RecursiveTask<Stats> {
+        private static final long serialVersionUID = 1L;
+
+        private final Strategy strategy;
+        private final int from, to;
+        private final GameRandom random;
+        private final long maxTicks;
+
+        MatchTask(Strategy strategy, int from, int to, GameRandom random, long maxTicks) {
+            this.strategy = strategy;
+            this.from = from;
+            this.to = to;
+            this.random = random;
+            this.maxTicks = maxTicks;
+        }
+
+        @Override
+        protected Stats compute() {
+            if (to - from <= LEAF_MATCHES) {
+                Stats stats = new Stats();
+                // One engine per leaf, reset between matches so its lanes stay sized and warm.
+                GameEngine engine = new GameEngine(new UnitFactory(false), GameEngine.DEFAULT_LANE_COUNT, 0);
+                for (int m = from; m < to; m++) {
+                    engine.reset(random.nextLong());
+                    int startHp = engine.getEnemyBase().hp;
+                    long spent = HeadlessRunner.playMatch(engine, strategy.buildOrder, maxTicks);
+                    stats.add(engine, spent, startHp, maxTicks);
+                }
+                return stats;
+            }
+            int mid = (from + to) >>> 1;
+            MatchTask left = new MatchTask(strategy, from, mid, random.split(), maxTicks);
+            MatchTask right = new MatchTask(strategy, mid, to, random.split(), maxTicks);
+            left.fork();
+            Stats stats = right.compute();
+            return stats.merge(left.join());
+        }
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        int matches = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000;
+        int threads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long seed = (args.length > 2) ? Long.parseLong(args[2]) : 1L;
+        long maxTicks = (args.length > 3) ? Long.parseLong(args[3]) : 20_000;
+
+        Strategy[] strategies = strategies();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        GameRandom master = new GameRandom(seed);
+
+        // Submit everything first so idle workers steal across strategies too.
+        MatchTask[] tasks = new MatchTask[strategies.length];
+        long start = System.nanoTime();
+        for (int s = 0; s < strategies.length; s++) {
+            tasks[s] = new MatchTask(strategies[s], 0, matches, master.split(), maxTicks);
+            pool.execute(tasks[s]);
+        }
+        Stats[] results = new Stats[strategies.length];
+        for (int s = 0; s < strategies.length; s++) {
+            results[s] = tasks[s].join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+
+        System.out.printf("%d matches per strategy, %d threads, seed %d, cap %d ticks%n",
+                matches, threads, seed, maxTicks);
+        System.out.printf("%-8s %-24s %-22s %-20s %s%n",
+                "strategy", "win rate (95% CI)", "ticks (95% CI)", "hp/100 gold", "timeouts");
+        long total = 0;
+        for (int s = 0; s < strategies.length; s++) {
+            Stats st = results[s];
+            total += st.matches;
+            double[] win = wilson(st.wins, st.matches);
+            System.out.printf("%-8s %5.1f%% [%5.1f, %5.1f]     %7.0f +- %-9.0f %6.1f +- %-8.1f %d%n",
+                    strategies[s].name,
+                    100.0 * st.wins / st.matches, 100 * win[0], 100 * win[1],
+                    st.ticks / st.matches, halfWidth(st.ticks, st.ticksSq, st.matches),
+                    st.efficiency / st.matches, halfWidth(st.efficiency, st.efficiencySq, st.matches),
+                    st.timeouts);
+        }
+        System.out.printf("%d matches in %.2f s (%.0f matches/s)%n", total, seconds, total / seconds);
+    }
+
+    /** One single-type build per player unit, then the mixed order HeadlessRunner plays. */
+    static Strategy[] strategies() {
+        UnitType[] players = {UnitType.UNIT1, UnitType.UNIT2, UnitType.UNIT3, UnitType.UNIT4, UnitType.UNIT5};
+        Strategy[] strategies = new Strategy[players.length + 1];
+        for (int i = 0; i < players.length; i++) {
+            strategies[i] = new Strategy(players[i].name(), players[i]);
+        }
+        strategies[players.length] = new Strategy("MIXED", HeadlessRunner.BUILD_ORDER);
+        return strategies;
+    }
+
+    /** Wilson score interval for a proportion; stays sensible near 0% and 100%. */
+    static double[] wilson(long successes, long n) {
+        if (n == 0) return new double[] {0, 0};
+        double p = successes / (double) n;
+        double z2 = Z95 * Z95;
+        double centre = (p + z2 / (2 * n)) / (1 + z2 / n);
+        double half = Z95 * Math.sqrt(p * (1 - p) / n + z2 / (4.0 * n * n)) / (1 + z2 / n);
+        return new double[] {Math.max(0, centre - half), Math.min(1, centre + half)};
+    }
+
+    /** Half-width of the normal-approximation 95% interval of a mean. */
+    static double halfWidth(double sum, double sumSq, long n) {
+        if (n < 2) return 0;
+        double mean = sum / n;
+        double variance = Math.max(0, (sumSq - n * mean * mean) / (n - 1));
+        return Z95 * Math.sqrt(variance / n);
+    }
+}
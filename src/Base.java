@@ -1,26 +1,56 @@
 import java.awt.*;
+import java.nio.ByteBuffer;
 
 public class Base {
     int x, y, width, height, hp;
-    Color color;
+    private String label;
+    private int labelHp;
 
-    public Base(int x, int y, int width, int height, int hp, Color color) {
+    public Base(int x, int y, int width, int height, int hp) {
         this.x = x;
         this.y = y;
         this.width = width;
         this.height = height;
         this.hp = hp;
-        this.color = color;
     }
 
-    public void draw(Graphics g) {
+    public void copyFrom(Base other) {
+        x = other.x;
+        y = other.y;
+        width = other.width;
+        height = other.height;
+        hp = other.hp;
+    }
+
+    void writeTo(ByteBuffer out) {
+        out.putInt(x).putInt(y).putInt(width).putInt(height).putInt(hp);
+    }
+
+    void readFrom(ByteBuffer in) {
+        x = in.getInt();
+        y = in.getInt();
+        width = in.getInt();
+        height = in.getInt();
+        hp = in.getInt();
+    }
+
+    public void draw(Graphics g, Color color) {
+        drawBody(g, color);
+        drawLabel(g);
+    }
+
+    public void drawBody(Graphics g, Color color) {
         g.setColor(color);
         g.fillRect(x, y, width, height);
-        g.setColor(Color.BLACK);
-        g.drawString("HP: " + hp, x + 5, y - 5);
     }
 
-    public Rectangle getBounds() {
-        return new Rectangle(x, y, width, height);
+    /** The "HP: n" label above the base; the string is only rebuilt when hp changes. */
+    public void drawLabel(Graphics g) {
+        if (label == null || labelHp != hp) {
+            label = "HP: " + hp;
+            labelHp = hp;
+        }
+        g.setColor(Color.BLACK);
+        g.drawString(label, x + 5, y - 5);
     }
 }
@@ -0,0 +1,255 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Append-only binary log of what happens in a match: spawns, hits, deaths,
+ * base damage, gold payouts and upgrades, one fixed-size record each.
+ *
+ * Producers (the simulation thread and the lane workers) claim a slot in a
+ * lock-free ring with one CAS and never wait: when the ring is full the
+ * record is dropped and counted. A daemon writer thread drains the ring into
+ * the file through memory-mapped windows of MAP_CHUNK bytes, so the tick
+ * never blocks on I/O and nothing is allocated per record.
+ *
+ * File layout, little-endian: "LCL1", version int, record count long
+ * (written on close), then 32-byte records: tick long; kind, lane, actor
+ * type and target type bytes (-1 when none); amount, a, b and c ints whose
+ * meaning depends on the kind; and 4 reserved bytes, always zero:
+ *
+ *   MATCH_START  amount lane count, a and b the seed's low and high halves
+ *   SPAWN        actor type, amount gold paid, a team, b x, c y
+ *   HIT          actor and target types, amount damage, a actor team,
+ *                b target hp after the hit, c target x
+ *   DEATH        actor type, amount ticks alive, a team, b x
+ *   BASE_DAMAGE  actor type, amount damage, a actor team, b x
+ *   GOLD         amount paid out, a gold after
+ *   UPGRADE      amount gold paid, a gold after, b upgrades bought
+ *
+ * A log cut short by a crash has no count; its records end at the first
+ * kind of zero. A log that could not be trimmed on close is zero-padded
+ * past its counted records.
+ */
+public final class CombatLog implements AutoCloseable {
+    public static final byte MATCH_START = 1;
+    public static final byte SPAWN = 2;
+    public static final byte HIT = 3;
+    public static final byte DEATH = 4;
+    public static final byte BASE_DAMAGE = 5;
+    public static final byte GOLD = 6;
+    public static final byte UPGRADE = 7;
+    public static final String[] KIND_NAMES = {
+        "?", "match start", "spawn", "hit", "death", "base damage", "gold", "upgrade"
+    };
+
+    static final int MAGIC = 0x4C434C31;    // "LCL1"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int RECORD_BYTES = 32;
+
+    private static final int LONGS_PER_RECORD = RECORD_BYTES / 8;
+    private static final long MAP_CHUNK = 64L << 20;
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+
+    // Ring: slot i holds data[i * 4 .. i * 4 + 3]. sequence[i] == position
+    // means free for the producer claiming that position, position + 1 means
+    // filled and waiting for the writer.
+    private final int mask;
+    private final long[] data;
+    private final AtomicLongArray sequence;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private long head;                      // writer thread only
+
+    private final Path file;
+    private final FileChannel channel;
+    private final Thread writer;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long records;
+    private volatile boolean running = true;
+    private volatile IOException failure;
+
+    // Tick the current records belong to; set by the engine before lanes run.
+    private long tick;
+
+    public CombatLog(Path file) throws IOException {
+        this(file, 1 << 16);
+    }
+
+    /** @param capacity ring slots, rounded up to a power of two */
+    public CombatLog(Path file, int capacity) throws IOException {
+        int slots = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        mask = slots - 1;
+        data = new long[slots * LONGS_PER_RECORD];
+        sequence = new AtomicLongArray(slots);
+        for (int i = 0; i < slots; i++) sequence.set(i, i);
+
+        this.file = file;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        map(0);
+        window.putInt(MAGIC).putInt(VERSION).putLong(0);
+
+        writer = new Thread(this::drainLoop, "combat-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // --- Producers ---
+
+    void setTick(long tick) {
+        this.tick = tick;
+    }
+
+    long tick() {
+        return tick;
+    }
+
+    void matchStart(long tick, int laneCount, long seed) {
+        offer(tick, MATCH_START, 0, -1, -1, laneCount, (int) seed, (int) (seed >>> 32), 0);
+    }
+
+    void spawn(long tick, int lane, int type, int cost, int team, int x, int y) {
+        offer(tick, SPAWN, lane, type, -1, cost, team, x, y);
+    }
+
+    void hit(int lane, int type, int targetType, int damage, int team, int targetHp, int targetX) {
+        offer(tick, HIT, lane, type, targetType, damage, team, targetHp, targetX);
+    }
+
+    void death(int lane, int type, int ticksAlive, int team, int x) {
+        offer(tick, DEATH, lane, type, -1, ticksAlive, team, x, 0);
+    }
+
+    void baseDamage(int lane, int type, int damage, int team, int x) {
+        offer(tick, BASE_DAMAGE, lane, type, -1, damage, team, x, 0);
+    }
+
+    void gold(long tick, int amount, int goldAfter) {
+        offer(tick, GOLD, 0, -1, -1, amount, goldAfter, 0, 0);
+    }
+
+    void upgrade(long tick, int cost, int goldAfter, int upgrades) {
+        offer(tick, UPGRADE, 0, -1, -1, cost, goldAfter, upgrades, 0);
+    }
+
+    /** Records dropped because the writer fell a whole ring behind. */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Claims a slot and fills it; safe from any number of threads. Fields are
+     * packed so that writing the four longs little-endian gives the file
+     * layout directly.
+     */
+    private void offer(long tick, byte kind, int lane, int actor, int target, int amount, int a, int b, int c) {
+        long position = tail.get();
+        int slot;
+        while (true) {
+            slot = (int) position & mask;
+            long s = sequence.get(slot);
+            if (s == position) {
+                if (tail.compareAndSet(position, position + 1)) break;
+                position = tail.get();
+            } else if (s < position) {
+                dropped.incrementAndGet();
+                return;
+            } else {
+                position = tail.get();
+            }
+        }
+        int i = slot * LONGS_PER_RECORD;
+        data[i] = tick;
+        data[i + 1] = (kind & 0xFFL) | (lane & 0xFFL) << 8 | (actor & 0xFFL) << 16 | (target & 0xFFL) << 24
+                | (long) amount << 32;
+        data[i + 2] = (a & 0xFFFFFFFFL) | (long) b << 32;
+        data[i + 3] = c & 0xFFFFFFFFL;
+        sequence.lazySet(slot, position + 1);
+    }
+
+    // --- Writer thread ---
+
+    private void drainLoop() {
+        try {
+            while (running) {
+                if (drain() == 0) LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    /** Moves every filled slot into the file; returns how many. */
+    private int drain() throws IOException {
+        int n = 0;
+        while (true) {
+            int slot = (int) head & mask;
+            if (sequence.get(slot) != head + 1) return n;
+            if (window.remaining() < RECORD_BYTES) map(windowStart + window.position());
+            int i = slot * LONGS_PER_RECORD;
+            window.putLong(data[i]).putLong(data[i + 1]).putLong(data[i + 2]).putLong(data[i + 3]);
+            sequence.lazySet(slot, head + mask + 1);
+            head++;
+            records++;
+            n++;
+        }
+    }
+
+    private void map(long start) throws IOException {
+        window = channel.map(FileChannel.MapMode.READ_WRITE, start, MAP_CHUNK);
+        window.order(ByteOrder.LITTLE_ENDIAN);
+        windowStart = start;
+    }
+
+    /**
+     * Stops the writer, flushes what is left in the ring, writes the record
+     * count and trims the file to its records. Detach the log from the
+     * engine first.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long end;
+        try {
+            if (failure != null) throw failure;
+            drain();
+            end = windowStart + window.position();
+            window.force();
+            map(0);
+            window.putLong(8, records);
+            window.force();
+            window = null;
+        } finally {
+            channel.close();
+        }
+        trim(end);
+    }
+
+    /**
+     * Cuts the unused end of the last window off through a fresh channel.
+     * Windows only get unmapped once they are collected, and some platforms
+     * (Windows) refuse to shrink a file that is still mapped; the log then
+     * keeps its zero padding, which readers skip by the record count.
+     */
+    private void trim(long end) {
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            out.truncate(end);
+        } catch (IOException e) {
+            // Still mapped; the header count marks the end of the records.
+        }
+    }
+}
@@ -0,0 +1,200 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Summarizes a {@link CombatLog} file: per unit type the spawns, damage
+ * dealt to units and bases, killing blows and how long units of the type
+ * lived before they died, and the gold earned and spent in every ten
+ * seconds of match time, averaged over the matches in the log.
+ *
+ * The file is streamed through one reusable buffer, so logs of many
+ * gigabytes take constant memory and the time of one sequential read.
+ *
+ * Usage: java CombatLogAnalyzer logFile
+ */
+public class CombatLogAnalyzer {
+    private static final int BUFFER_BYTES = 8 << 20;
+    private static final int BUCKET_MS = 10_000;
+    private static final UnitType[] TYPES = UnitType.values();
+
+    // Per unit type
+    private final long[] spawns = new long[TYPES.length];
+    private final long[] hits = new long[TYPES.length];
+    private final long[] unitDamage = new long[TYPES.length];
+    private final long[] baseDamage = new long[TYPES.length];
+    private final long[] kills = new long[TYPES.length];
+    private final LatencyHistogram[] lifetime = new LatencyHistogram[TYPES.length];
+
+    // Per ten seconds of match time, summed over matches
+    private long[] earned = new long[16];
+    private long[] spent = new long[16];
+    private int buckets;
+
+    private final long[] kinds = new long[CombatLog.KIND_NAMES.length];
+    private long records;
+    private long matches;
+    private boolean matchHasRecords;
+
+    CombatLogAnalyzer() {
+        for (int i = 0; i < lifetime.length; i++) {
+            lifetime[i] = new LatencyHistogram();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: java CombatLogAnalyzer logFile");
+            System.exit(2);
+        }
+        Path file = Paths.get(args[0]);
+        CombatLogAnalyzer analyzer = new CombatLogAnalyzer();
+        long start = System.nanoTime();
+        long bytes = analyzer.read(file);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        analyzer.report();
+        System.out.printf("%nread %.1f MB in %.2f s (%.0f MB/s, %.1f M records/s)%n",
+                bytes / 1e6, seconds, bytes / 1e6 / seconds, analyzer.records / 1e6 / seconds);
+    }
+
+    /** Streams every record of the file through add; returns the bytes read. */
+    long read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.limit(CombatLog.HEADER_BYTES);
+            readFully(channel, buffer);
+            buffer.flip();
+            if (buffer.remaining() < CombatLog.HEADER_BYTES || buffer.getInt() != CombatLog.MAGIC) {
+                throw new IOException(file + " is not a combat log");
+            }
+            int version = buffer.getInt();
+            if (version != CombatLog.VERSION) {
+                throw new IOException("Unsupported combat log version " + version);
+            }
+            long expected = buffer.getLong();
+            long remaining = (expected > 0) ? expected : Long.MAX_VALUE;
+
+            buffer.clear();
+            while (remaining > 0 && channel.read(buffer) > 0) {
+                buffer.flip();
+                while (remaining > 0 && buffer.remaining() >= CombatLog.RECORD_BYTES) {
+                    if (!add(buffer)) {
+                        remaining = 0;
+                        break;
+                    }
+                    remaining--;
+                }
+                buffer.compact();
+            }
+            if (expected > 0 && records != expected) {
+                System.err.printf("log is truncated: %d of %d records%n", records, expected);
+            }
+            return CombatLog.HEADER_BYTES + records * CombatLog.RECORD_BYTES;
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining() && channel.read(buffer) > 0) { }
+    }
+
+    /** Folds one record into the totals; false at the zero kind that ends a crashed log. */
+    private boolean add(ByteBuffer in) {
+        long tick = in.getLong();
+        int kind = in.get();
+        in.get();                       // lane
+        int actor = in.get();
+        in.get();                       // target type
+        int amount = in.getInt();
+        in.getInt();                    // a
+        int b = in.getInt();
+        in.getInt();                    // c
+        in.getInt();                    // reserved
+        if (kind <= 0 || kind >= kinds.length) return false;
+
+        records++;
+        kinds[kind]++;
+        if (kind == CombatLog.MATCH_START) {
+            matchHasRecords = false;
+            return true;
+        }
+        if (!matchHasRecords) {
+            // A start with nothing after it (a logger attached before a reset) is not a match.
+            matchHasRecords = true;
+            matches++;
+        }
+
+        switch (kind) {
+            case CombatLog.SPAWN:
+                spawns[actor]++;
+                if (amount > 0) addGold(false, tick, amount);
+                break;
+            case CombatLog.HIT:
+                hits[actor]++;
+                unitDamage[actor] += amount;
+                // Hit points before the hit were still above zero: a killing blow.
+                if (b <= 0 && b + amount > 0) kills[actor]++;
+                break;
+            case CombatLog.DEATH:
+                lifetime[actor].record(amount);
+                break;
+            case CombatLog.BASE_DAMAGE:
+                baseDamage[actor] += amount;
+                break;
+            case CombatLog.GOLD:
+                addGold(true, tick, amount);
+                break;
+            case CombatLog.UPGRADE:
+                addGold(false, tick, amount);
+                break;
+        }
+        return true;
+    }
+
+    private void addGold(boolean income, long tick, int amount) {
+        int bucket = (int) (tick * GameEngine.TICK_MS / BUCKET_MS);
+        if (bucket >= earned.length) {
+            int length = Math.max(bucket + 1, earned.length * 2);
+            earned = Arrays.copyOf(earned, length);
+            spent = Arrays.copyOf(spent, length);
+        }
+        (income ? earned : spent)[bucket] += amount;
+        buckets = Math.max(buckets, bucket + 1);
+    }
+
+    void report() {
+        System.out.printf("%d records, %d matches%n", records, matches);
+        for (int k = 1; k < kinds.length; k++) {
+            System.out.printf("  %-12s %,14d%n", CombatLog.KIND_NAMES[k], kinds[k]);
+        }
+
+        System.out.printf("%n%-8s %9s %11s %13s %11s %9s %9s %11s %11s %11s%n", "type", "spawns", "hits",
+                "unit damage", "base dmg", "kills", "deaths", "alive p50", "alive p99", "alive max");
+        for (UnitType type : TYPES) {
+            int t = type.ordinal();
+            if (spawns[t] == 0 && hits[t] == 0) continue;
+            LatencyHistogram h = lifetime[t];
+            System.out.printf("%-8s %,9d %,11d %,13d %,11d %,9d %,9d %10.1fs %10.1fs %10.1fs%n", type,
+                    spawns[t], hits[t], unitDamage[t], baseDamage[t], kills[t], h.count(),
+                    seconds(h.percentile(0.5)), seconds(h.percentile(0.99)), seconds(h.max()));
+        }
+
+        System.out.printf("%n%-10s %14s %14s %16s%n", "match time", "earned/match", "spent/match", "net so far");
+        long net = 0;
+        double perMatch = Math.max(1, matches);
+        for (int i = 0; i < buckets; i++) {
+            net += earned[i] - spent[i];
+            System.out.printf("%4d-%-4ds %14.1f %14.1f %16.1f%n", i * BUCKET_MS / 1000, (i + 1) * BUCKET_MS / 1000,
+                    earned[i] / perMatch, spent[i] / perMatch, net / perMatch);
+        }
+    }
+
+    private static double seconds(long ticks) {
+        return ticks * GameEngine.TICK_MS / 1000.0;
+    }
+}
@@ -0,0 +1,132 @@
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Plays the same seeded matches on two engines set up differently and
+ * compares their state hashes after every tick. At the first tick where the
+ * hashes differ it prints the first field that differs and fails (exit
+ * code 1). Every tick it also checks each engine's kept hash against one
+ * rebuilt from every unit, which catches a state write that bypassed the
+ * hash.
+ *
+ * Modes: sweep runs the sweep combat against the nested-loop reference,
+ * lanes runs lanes on a ForkJoin pool against serial lanes, and all runs
+ * both. With unitsPerSide, every match starts from the crowded LaneStress
+ * scenario instead of an empty field.
+ *
+ * Usage: java DesyncCheck [matches] [sweep|lanes|all] [maxTicks] [unitsPerSide]
+ */
+public class DesyncCheck {
+    private static final UnitType[] PLAYER_TYPES = {
+        UnitType.UNIT1, UnitType.UNIT2, UnitType.UNIT3, UnitType.UNIT4, UnitType.UNIT5
+    };
+
+    private long ticks;
+    private long keptHashNanos;
+    private long fullHashNanos;
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        int matches = (args.length > 0) ? Integer.parseInt(args[0]) : 50;
+        String mode = (args.length > 1) ? args[1] : "all";
+        long maxTicks = (args.length > 2) ? Long.parseLong(args[2]) : 20_000;
+        int units = (args.length > 3) ? Integer.parseInt(args[3]) : 0;
+
+        DesyncCheck check = new DesyncCheck();
+        boolean ok = true;
+        if (mode.equals("sweep") || mode.equals("all")) {
+            ok &= check.run("sweep vs reference", matches, maxTicks, units, false);
+        }
+        if (ok && (mode.equals("lanes") || mode.equals("all"))) {
+            ok &= check.run("parallel vs serial lanes", matches, maxTicks, units, true);
+        }
+        if (check.ticks > 0) {
+            System.out.printf("state hash: %.0f ns kept, %.0f ns rebuilt from every unit (per engine and tick)%n",
+                    check.keptHashNanos / (2.0 * check.ticks), check.fullHashNanos / (2.0 * check.ticks));
+        }
+        if (!ok) System.exit(1);
+        System.out.println("OK");
+    }
+
+    /** Plays matches on a pair of engines; false at the first divergence. */
+    private boolean run(String name, int matches, long maxTicks, int units, boolean lanes) {
+        ForkJoinPool pool = lanes ? new ForkJoinPool(Math.max(2, Runtime.getRuntime().availableProcessors())) : null;
+        try {
+            UnitFactory factory = new UnitFactory(false);
+            GameEngine a = new GameEngine(factory, GameEngine.DEFAULT_LANE_COUNT, 0);
+            GameEngine b = new GameEngine(new UnitFactory(false), GameEngine.DEFAULT_LANE_COUNT, 0);
+            GameEngine scenario = (units > 0) ? LaneStress.buildScenario(units, GameEngine.DEFAULT_LANE_COUNT) : null;
+            if (lanes) a.setLanePool(pool);
+            else b.setSweepCombat(false);
+            a.setStateHashing(true);
+            b.setStateHashing(true);
+
+            long matchTicks = 0;
+            for (int m = 0; m < matches; m++) {
+                a.reset(m);
+                b.reset(m);
+                if (scenario != null) {
+                    a.copyStateFrom(scenario);
+                    b.copyStateFrom(scenario);
+                    a.reseed(m);
+                    b.reseed(m);
+                }
+                String failure = playMatch(a, b, new GameRandom(~m), maxTicks);
+                matchTicks += a.getTick();
+                if (failure != null) {
+                    System.out.printf("%s: match %d (seed %d) %s%n", name, m, m, failure);
+                    return false;
+                }
+                // Equal hashes every tick; make sure the states really ended equal.
+                String missed = a.firstDifference(b);
+                if (missed != null) {
+                    System.out.printf("%s: match %d ended with equal hashes but %s%n", name, m, missed);
+                    return false;
+                }
+            }
+            System.out.printf("%s: %d matches, %d ticks, no divergence%n", name, matches, matchTicks);
+            return true;
+        } finally {
+            if (pool != null) pool.shutdown();
+        }
+    }
+
+    /** Steps both engines with the same random player; a description of the first divergence, or null. */
+    private String playMatch(GameEngine a, GameEngine b, GameRandom player, long maxTicks) {
+        while (!a.isGameOver() && a.getTick() < maxTicks) {
+            long next = a.getTick() + 1;
+            UnitType type = PLAYER_TYPES[player.nextInt(PLAYER_TYPES.length)];
+            GameCommand command = null;
+            if (a.canUpgrade() && player.nextInt(8) == 0) {
+                command = GameCommand.upgrade(next);
+            } else if (a.getGold() >= a.cost(type)) {
+                command = GameCommand.spawn(next, type, player.nextInt(a.getLaneCount()));
+            }
+            if (command != null) {
+                a.apply(command);
+                b.apply(command);
+            }
+            a.step();
+            b.step();
+            ticks++;
+
+            long start = System.nanoTime();
+            long hashA = a.stateHash(), hashB = b.stateHash();
+            long kept = System.nanoTime();
+            long fullA = a.computeStateHash(), fullB = b.computeStateHash();
+            keptHashNanos += kept - start;
+            fullHashNanos += System.nanoTime() - kept;
+
+            if (hashA != fullA || hashB != fullB) {
+                return String.format("tick %d: kept hash of engine %s no longer matches its state",
+                        a.getTick(), (hashA != fullA) ? "A" : "B");
+            }
+            if (hashA != hashB) {
+                String field = a.firstDifference(b);
+                return String.format("diverged at tick %d: %s", a.getTick(),
+                        (field != null) ? field : "no field differs (hash collision?)");
+            }
+        }
+        return null;
+    }
+}
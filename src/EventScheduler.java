@@ -0,0 +1,191 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Simulation-time event queue: a binary min-heap over parallel primitive
+ * arrays, so scheduling and firing an event allocates nothing once the
+ * arrays are big enough. Events are plain (time, kind, payload) triples;
+ * what a kind means is up to the owner. Events due at the same time fire in
+ * the order they were scheduled, which keeps seeded matches reproducible.
+ */
+public final class EventScheduler {
+    /** Receives each due event; may schedule further events while handling it. */
+    public interface Handler {
+        void onEvent(int kind, int payload, long time);
+    }
+
+    long[] time = new long[16];
+    long[] order = new long[16];    // scheduling sequence, breaks ties in time
+    int[] kind = new int[16];
+    int[] payload = new int[16];
+    int size;
+    long nextOrder;
+
+    /** Adds an event; O(log n). */
+    public void schedule(long at, int eventKind, int eventPayload) {
+        if (size == time.length) grow();
+        int i = size++;
+        time[i] = at;
+        order[i] = nextOrder++;
+        kind[i] = eventKind;
+        payload[i] = eventPayload;
+        siftUp(i);
+    }
+
+    /**
+     * Removes and hands to the handler every event due at or before now,
+     * earliest first. Events the handler schedules for now or earlier fire
+     * in the same call.
+     */
+    public int runDue(long now, Handler handler) {
+        int fired = 0;
+        while (size > 0 && time[0] <= now) {
+            long at = time[0];
+            int k = kind[0];
+            int p = payload[0];
+            removeTop();
+            handler.onEvent(k, p, at);
+            fired++;
+        }
+        return fired;
+    }
+
+    /** Removes the earliest pending event of a kind; its time, or -1 if there is none. O(n). */
+    public long cancel(int eventKind) {
+        int found = -1;
+        for (int i = 0; i < size; i++) {
+            if (kind[i] == eventKind && (found < 0 || before(i, found))) found = i;
+        }
+        if (found < 0) return -1;
+        long at = time[found];
+        size--;
+        if (found < size) {
+            move(size, found);
+            siftDown(found);
+            siftUp(found);
+        }
+        return at;
+    }
+
+    /** Time of the earliest pending event, or Long.MAX_VALUE if there is none. */
+    public long peekTime() {
+        return (size > 0) ? time[0] : Long.MAX_VALUE;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+        nextOrder = 0;
+    }
+
+    /** Makes this queue an exact copy of other, growing only when needed. */
+    void copyFrom(EventScheduler other) {
+        while (time.length < other.size) grow();
+        int n = other.size;
+        System.arraycopy(other.time, 0, time, 0, n);
+        System.arraycopy(other.order, 0, order, 0, n);
+        System.arraycopy(other.kind, 0, kind, 0, n);
+        System.arraycopy(other.payload, 0, payload, 0, n);
+        size = n;
+        nextOrder = other.nextOrder;
+    }
+
+    /** Order-sensitive hash of the heap as it stands, for GameEngine.stateHash. */
+    long hash() {
+        long h = LaneStore.mix(size + nextOrder * 31);
+        for (int i = 0; i < size; i++) {
+            h = LaneStore.mix(h ^ time[i]);
+            h = LaneStore.mix(h ^ order[i]);
+            h = LaneStore.mix(h ^ ((long) kind[i] << 32 | (payload[i] & 0xFFFFFFFFL)));
+        }
+        return h;
+    }
+
+    // --- Snapshots ---
+
+    int snapshotSize() {
+        return 4 + 8 + size * (8 + 8 + 4 + 4);
+    }
+
+    /** The heap array as it stands, so a restored queue fires in exactly the same order. */
+    void writeTo(ByteBuffer out) {
+        out.putInt(size);
+        out.putLong(nextOrder);
+        for (int i = 0; i < size; i++) {
+            out.putLong(time[i]);
+            out.putLong(order[i]);
+            out.putInt(kind[i]);
+            out.putInt(payload[i]);
+        }
+    }
+
+    void readFrom(ByteBuffer in) {
+        int n = in.getInt();
+        nextOrder = in.getLong();
+        while (time.length < n) grow();
+        for (int i = 0; i < n; i++) {
+            time[i] = in.getLong();
+            order[i] = in.getLong();
+            kind[i] = in.getInt();
+            payload[i] = in.getInt();
+        }
+        size = n;
+    }
+
+    private void removeTop() {
+        size--;
+        if (size > 0) {
+            move(size, 0);
+            siftDown(0);
+        }
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!before(i, parent)) break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) break;
+            int child = (left + 1 < size && before(left + 1, left)) ? left + 1 : left;
+            if (!before(child, i)) break;
+            swap(i, child);
+            i = child;
+        }
+    }
+
+    private boolean before(int a, int b) {
+        return time[a] < time[b] || (time[a] == time[b] && order[a] < order[b]);
+    }
+
+    private void swap(int a, int b) {
+        long t = time[a]; time[a] = time[b]; time[b] = t;
+        long o = order[a]; order[a] = order[b]; order[b] = o;
+        int k = kind[a]; kind[a] = kind[b]; kind[b] = k;
+        int p = payload[a]; payload[a] = payload[b]; payload[b] = p;
+    }
+
+    private void move(int from, int to) {
+        time[to] = time[from];
+        order[to] = order[from];
+        kind[to] = kind[from];
+        payload[to] = payload[from];
+    }
+
+    private void grow() {
+        int capacity = time.length * 2;
+        time = Arrays.copyOf(time, capacity);
+        order = Arrays.copyOf(order, capacity);
+        kind = Arrays.copyOf(kind, capacity);
+        payload = Arrays.copyOf(payload, capacity);
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * A player input stamped with the simulation tick it applies on. Commands
+ * are created on the EDT and applied by the simulation thread, so input
+ * never touches the engine directly.
+ */
+public final class GameCommand {
+    public enum Type { SPAWN, UPGRADE, FIELD_WIDTH, ENEMY_PLAN, DEFINITIONS }
+
+    public final Type type;
+    public final long tick;
+    public final UnitType unitType;   // SPAWN and ENEMY_PLAN only
+    public final int value;           // lane for SPAWN and ENEMY_PLAN, width for FIELD_WIDTH
+    public final UnitDefinitions definitions;   // DEFINITIONS only
+
+    private GameCommand(Type type, long tick, UnitType unitType, int value, UnitDefinitions definitions) {
+        this.type = type;
+        this.tick = tick;
+        this.unitType = unitType;
+        this.value = value;
+        this.definitions = definitions;
+    }
+
+    /** The same command restamped for another tick. */
+    public GameCommand at(long newTick) {
+        return new GameCommand(type, newTick, unitType, value, definitions);
+    }
+
+    public static GameCommand spawn(long tick, UnitType unitType, int lane) {
+        return new GameCommand(Type.SPAWN, tick, unitType, lane, null);
+    }
+
+    public static GameCommand upgrade(long tick) {
+        return new GameCommand(Type.UPGRADE, tick, null, 0, null);
+    }
+
+    /** An AI opponent's choice of lane and type for the next spawn from that type's pool. */
+    public static GameCommand enemyPlan(long tick, UnitType unitType, int lane) {
+        return new GameCommand(Type.ENEMY_PLAN, tick, unitType, lane, null);
+    }
+
+    public static GameCommand fieldWidth(long tick, int width) {
+        return new GameCommand(Type.FIELD_WIDTH, tick, null, width, null);
+    }
+
+    /**
+     * The unit definitions the match runs on from that tick: the starting
+     * set, or a hot reload. Engines record these themselves.
+     */
+    public static GameCommand definitions(long tick, UnitDefinitions definitions) {
+        return new GameCommand(Type.DEFINITIONS, tick, null, 0, definitions);
+    }
+}
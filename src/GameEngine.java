@@ -0,0 +1,738 @@
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Headless simulation core. Owns the lanes, bases, economy and spawning and
+ * advances the match one fixed tick per {@link #step()}. Nothing here touches
+ * Swing or a display, so matches run headless as fast as the CPU allows.
+ */
+public class GameEngine {
+    // Constants
+    public static final int DEFAULT_LANE_COUNT = 3;
+    public static final int LANE_HEIGHT = 90;
+    public static final int LANE_SPACING = 30;
+    public static final int L1_Y = 160;
+    public static final int FIELD_WIDTH = 1000;
+    public static final double SPEED_SCALE = 0.7;
+    public static final int TICK_MS = 30;
+    public static final int MAX_GOLD_UPGRADES = 4;
+    private static final int GOLD_PER_UPGRADE = -120;
+    private static final int START_GOLD = 100;
+    private static final int START_GOLD_PER_SECOND = 10;
+    private static final int START_UPGRADE_COST = 40;
+    private static final int PLAYER_BASE_HP = 100;
+    private static final int ENEMY_BASE_HP = 500;
+    private static final int GOLD_GENERATION_FRAMES = 1000;
+    private static final int ELITE_SPAWN_INTERVAL_MS = 20_000;
+    private static final int MIN_ENEMY_SPAWN_DELAY = 1500;
+    private static final int MAX_ENEMY_SPAWN_DELAY = 4000;
+
+    // Spawn pools an AI opponent can plan for
+    public static final int POOL_ENEMY = 0;
+    public static final int POOL_ELITE = 1;
+
+    // Scheduled event kinds
+    private static final int EVENT_ENEMY_SPAWN = 0;
+    private static final int EVENT_ELITE_SPAWN = 1;
+    private static final int EVENT_GOLD = 2;
+
+    private static final UnitType[] UNIT_TYPES = UnitType.values();
+
+    // Lanes
+    private final int laneCount;
+    private final int[] laneY;
+    private final LaneStore[] lanes;
+    private final LaneCombat[] laneCombat;
+    private boolean sweepCombat = true;
+
+    // Parallel lane update. Damage to each base is accumulated per lane and
+    // merged in lane order, so results match the serial loop exactly.
+    private ForkJoinPool lanePool;
+    private final LaneTask[] laneTasks;
+    private final int[] damageToEnemyBase;
+    private final int[] damageToPlayerBase;
+
+    // Bases
+    private final Base playerBase;
+    private final Base enemyBase;
+
+    // Game status
+    private boolean gameOver;
+    private long seed;
+    private final GameRandom random;
+    private final UnitFactory factory;
+    private Replay recording;
+    private volatile UnitTable table;           // replaced, never changed, on reload
+    private UnitDefinitions tableDefinitions;   // what the table was last filled from
+    // Set from the EDT when the perf overlay is toggled; null means no timing.
+    private volatile TickProfiler profiler;
+    // Null unless a combat log is attached; set while the simulation is stopped.
+    private CombatLog combatLog;
+    private boolean stateHashing;
+
+    // Economy (starting values are set by reset)
+    private int gold;
+    private int goldPerSecond;
+    private int goldUpgradeCount;
+    private int upgradeCost;
+    private int goldGenerationFrames;
+
+    // Time tracking (simulation time, advanced by TICK_MS per step)
+    private long tick;
+    private int elapsedMs;
+
+    // Enemy and elite spawns and gold payouts, keyed by elapsedMs.
+    private final EventScheduler events = new EventScheduler();
+    private final EventScheduler.Handler eventHandler = this::handleEvent;
+
+    // Lane and type an AI opponent chose for the next spawn from each pool;
+    // -1 leaves that spawn to the RNG as usual.
+    private final int[] plannedType = {-1, -1};
+    private final int[] plannedLane = {-1, -1};
+
+    public GameEngine(UnitFactory factory) {
+        this(factory, DEFAULT_LANE_COUNT, System.nanoTime());
+    }
+
+    public GameEngine(UnitFactory factory, int laneCount) {
+        this(factory, laneCount, System.nanoTime());
+    }
+
+    /** All randomness in the match comes from seed, so equal seeds and inputs give equal matches. */
+    public GameEngine(UnitFactory factory, int laneCount, long seed) {
+        this.factory = factory;
+        this.seed = seed;
+        this.random = new GameRandom(seed);
+        this.tableDefinitions = factory.definitions();
+        this.table = new UnitTable(tableDefinitions, SPEED_SCALE);
+        this.laneCount = laneCount;
+        this.laneY = new int[laneCount];
+        this.lanes = new LaneStore[laneCount];
+        this.laneCombat = new LaneCombat[laneCount];
+        this.laneTasks = new LaneTask[laneCount];
+        this.damageToEnemyBase = new int[laneCount];
+        this.damageToPlayerBase = new int[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            laneY[i] = L1_Y + i * (LANE_HEIGHT + LANE_SPACING);
+            lanes[i] = new LaneStore();
+            laneCombat[i] = new LaneCombat(table, i);
+            laneTasks[i] = new LaneTask(i);
+        }
+
+        // Bases span every lane: 90..450 for the default three.
+        int baseHeight = laneCount * (LANE_HEIGHT + LANE_SPACING);
+        playerBase = new Base(20, 90, 48, baseHeight, PLAYER_BASE_HP);
+        enemyBase = new Base(FIELD_WIDTH - 68, 90, 48, baseHeight, ENEMY_BASE_HP);
+
+        reset(seed);
+    }
+
+    /**
+     * Starts a new match with the given seed in place. Lanes keep their grown
+     * arrays, and the unit table and factory (pools, sprites) stay warm, so
+     * this is much cheaper than building a new engine. Recording stops; the
+     * profiler and lane pool stay attached.
+     */
+    public void reset(long seed) {
+        this.seed = seed;
+        random.setState(seed);
+        recording = null;
+        gameOver = false;
+
+        gold = START_GOLD;
+        goldPerSecond = START_GOLD_PER_SECOND;
+        goldUpgradeCount = 0;
+        upgradeCost = START_UPGRADE_COST;
+        goldGenerationFrames = GOLD_GENERATION_FRAMES;
+        tick = 0;
+        elapsedMs = 0;
+
+        playerBase.hp = PLAYER_BASE_HP;
+        enemyBase.x = FIELD_WIDTH - 68;
+        enemyBase.hp = ENEMY_BASE_HP;
+        for (LaneStore lane : lanes) {
+            lane.clear();
+        }
+        clearPlans();
+
+        events.clear();
+        scheduleNextEnemySpawn();
+        events.schedule(ELITE_SPAWN_INTERVAL_MS, EVENT_ELITE_SPAWN, 0);
+        events.schedule(goldIntervalMs(), EVENT_GOLD, 0);
+        if (combatLog != null) combatLog.matchStart(0, laneCount, seed);
+    }
+
+    // --- Tick ---
+
+    /** Advances the match by one tick. Does nothing once the game is over. */
+    public void step() {
+        if (gameOver) return;
+
+        tick++;
+        if (recording != null) recording.endTick = tick;
+        TickProfiler p = profiler;
+        if (p != null) p.beginTick();
+
+        refreshTable();
+        if (combatLog != null) combatLog.setTick(tick);
+        elapsedMs += TICK_MS;
+        events.runDue(elapsedMs, eventHandler);
+        if (p != null) p.endPhase(TickProfiler.PHASE_EVENTS);
+        updateAllLanes();
+        if (p != null) p.endPhase(TickProfiler.PHASE_LANES);
+        checkGameOver();
+
+        if (p != null) {
+            p.endPhase(TickProfiler.PHASE_GAME_OVER);
+            p.endTick(this);
+        }
+    }
+
+    /**
+     * Picks up definitions swapped into the factory since the last tick.
+     * Doing it here, on the simulation thread before any lane work, means a
+     * tick never sees half of one table and half of another. The new table
+     * is published whole, so the EDT, which may still be drawing with the
+     * old one, never sees it half filled either. A recording gets the new
+     * definitions against the tick they take effect on.
+     */
+    private void refreshTable() {
+        UnitDefinitions current = factory.definitions();
+        if (current == tableDefinitions) return;
+        tableDefinitions = current;
+        if (recording != null) recording.record(GameCommand.definitions(tick, current));
+        UnitTable fresh = new UnitTable(current, SPEED_SCALE);
+        for (LaneCombat combat : laneCombat) combat.setTable(fresh);
+        table = fresh;
+    }
+
+    private void handleEvent(int kind, int payload, long time) {
+        switch (kind) {
+            case EVENT_ENEMY_SPAWN:
+                spawnEnemy();
+                scheduleNextEnemySpawn();
+                break;
+            case EVENT_ELITE_SPAWN:
+                spawnElite();
+                events.schedule(time + ELITE_SPAWN_INTERVAL_MS, EVENT_ELITE_SPAWN, 0);
+                break;
+            case EVENT_GOLD:
+                gold += goldPerSecond;
+                if (combatLog != null) combatLog.gold(tick, goldPerSecond, gold);
+                events.schedule(time + goldIntervalMs(), EVENT_GOLD, 0);
+                break;
+        }
+    }
+
+    /** Gold pays out every goldGenerationFrames, rounded down to whole ticks. */
+    private int goldIntervalMs() {
+        return (goldGenerationFrames / TICK_MS) * TICK_MS;
+    }
+
+    void updateAllLanes() {
+        if (lanePool != null && laneCount > 1) {
+            for (LaneTask task : laneTasks) {
+                task.reinitialize();
+            }
+            allLanes.reinitialize();
+            lanePool.invoke(allLanes);
+        } else {
+            for (int lane = 0; lane < laneCount; lane++) {
+                updateLane(lane);
+            }
+        }
+
+        for (int lane = 0; lane < laneCount; lane++) {
+            enemyBase.hp -= damageToEnemyBase[lane];
+            playerBase.hp -= damageToPlayerBase[lane];
+        }
+    }
+
+    private void updateLane(int lane) {
+        TickProfiler p = profiler;
+        long start = (p != null) ? System.nanoTime() : 0;
+        LaneStore store = lanes[lane];
+        LaneCombat combat = laneCombat[lane];
+        store.savePositions();
+
+        if (sweepCombat) {
+            damageToEnemyBase[lane] = combat.act(store, LaneStore.PLAYER, enemyBase);
+            damageToPlayerBase[lane] = combat.act(store, LaneStore.ENEMY, playerBase);
+        } else {
+            damageToEnemyBase[lane] = combat.actReference(store, LaneStore.PLAYER, enemyBase);
+            damageToPlayerBase[lane] = combat.actReference(store, LaneStore.ENEMY, playerBase);
+        }
+
+        if (combatLog != null) logDeaths(lane, store);
+        store.removeDead();
+        if (p != null) p.recordLane(lane, System.nanoTime() - start);
+    }
+
+    private void logDeaths(int lane, LaneStore store) {
+        for (int i = 0; i < store.size; i++) {
+            if (store.hp[i] <= 0) {
+                combatLog.death(lane, store.type[i], (int) (tick - store.born[i]), store.team[i], store.x[i]);
+            }
+        }
+    }
+
+    private final class LaneTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int lane;
+
+        LaneTask(int lane) {
+            this.lane = lane;
+        }
+
+        @Override
+        protected void compute() {
+            updateLane(lane);
+        }
+    }
+
+    private final RecursiveAction allLanes = new RecursiveAction() {
+        @Override
+        protected void compute() {
+            ForkJoinTask.invokeAll(laneTasks);
+        }
+    };
+
+    private void checkGameOver() {
+        if (playerBase.hp <= 0 || enemyBase.hp <= 0) {
+            gameOver = true;
+        }
+    }
+
+    // --- Commands ---
+
+    /**
+     * Applies a player command before the next step. When recording, it is
+     * logged against that tick; definitions are logged once the step picks
+     * them up.
+     */
+    public void apply(GameCommand command) {
+        if (recording != null && command.type != GameCommand.Type.DEFINITIONS) {
+            recording.record(command.tick == tick + 1 ? command : command.at(tick + 1));
+        }
+        switch (command.type) {
+            case SPAWN:
+                spawnPlayer(command.unitType, command.value);
+                break;
+            case UPGRADE:
+                upgradeGold();
+                break;
+            case FIELD_WIDTH:
+                setFieldWidth(command.value);
+                break;
+            case ENEMY_PLAN:
+                planEnemySpawn(command.unitType, command.value);
+                break;
+            case DEFINITIONS:
+                factory.setDefinitions(command.definitions);
+                break;
+        }
+    }
+
+    /** Spawns a player unit in the given lane if there is enough gold. */
+    public boolean spawnPlayer(UnitType type, int lane) {
+        int cost = factory.cost(type);
+        if (gameOver || gold < cost) return false;
+
+        int spawnX = playerBase.x + playerBase.width + 8;
+        int spawnY = getRandomYInLane(lane);
+
+        if (!addUnit(type, Unit.Team.PLAYER, spawnX, spawnY, lane)) return false;
+
+        gold -= cost;
+        if (combatLog != null) {
+            combatLog.spawn(tick, lane, type.ordinal(), cost, LaneStore.PLAYER, spawnX, spawnY);
+        }
+        return true;
+    }
+
+    /**
+     * Buys one gold generation upgrade if affordable. The faster rate counts
+     * from the last payout, so the payout in progress comes sooner; if that
+     * time has already passed, it comes on the next tick.
+     */
+    public boolean upgradeGold() {
+        if (gameOver || !canUpgrade()) {
+            return false;
+        }
+
+        gold -= upgradeCost;
+        goldUpgradeCount++;
+        int oldInterval = goldIntervalMs();
+        goldGenerationFrames += GOLD_PER_UPGRADE;
+        long pending = events.cancel(EVENT_GOLD);
+        if (pending >= 0) {
+            long lastPayout = pending - oldInterval;
+            events.schedule(Math.max(lastPayout + goldIntervalMs(), elapsedMs + TICK_MS), EVENT_GOLD, 0);
+        }
+        upgradeCost *= 2;
+        if (combatLog != null) combatLog.upgrade(tick, upgradeCost / 2, gold, goldUpgradeCount);
+        return true;
+    }
+
+    /**
+     * Fixes the lane and type of the next spawn from the pool the type
+     * belongs to (regular enemies or elites), for an AI opponent. The spawn
+     * still comes when the schedule says; a later plan for the same pool
+     * replaces this one. Returns false for types in neither pool.
+     */
+    public boolean planEnemySpawn(UnitType type, int lane) {
+        int pool = factory.spawnPool(type);
+        if (pool < 0 || lane < 0 || lane >= laneCount) return false;
+        plannedType[pool] = type.ordinal();
+        plannedLane[pool] = lane;
+        return true;
+    }
+
+    /** Whether the next spawn from the pool (POOL_ENEMY or POOL_ELITE) is already planned. */
+    public boolean hasEnemyPlan(int pool) {
+        return plannedType[pool] >= 0;
+    }
+
+    private void clearPlans() {
+        plannedType[POOL_ENEMY] = plannedType[POOL_ELITE] = -1;
+        plannedLane[POOL_ENEMY] = plannedLane[POOL_ELITE] = -1;
+    }
+
+    /** Keeps the enemy base on the right edge of the visible field. */
+    public void setFieldWidth(int width) {
+        enemyBase.x = width - 68;
+    }
+
+    /**
+     * Switches between the sweep-based lane combat (default) and the plain
+     * nested-loop reference. Both produce the same hits.
+     */
+    public void setSweepCombat(boolean sweepCombat) {
+        this.sweepCombat = sweepCombat;
+    }
+
+    /** Times every following tick into the profiler; null stops timing. */
+    public void setProfiler(TickProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /**
+     * Writes every spawn, hit, death, base hit, gold payout and upgrade to
+     * the log from the next tick on, after a match start record for the
+     * current match; null stops logging. Call while the simulation is stopped.
+     */
+    public void setCombatLog(CombatLog log) {
+        this.combatLog = log;
+        for (LaneCombat combat : laneCombat) combat.setLog(log);
+        if (log != null) log.matchStart(tick, laneCount, seed);
+    }
+
+    /**
+     * Keeps each lane's hash current as units move, fight, spawn and die,
+     * so {@link #stateHash} no longer walks every unit. Costs a few key
+     * mixes per changed field while on; nothing when off.
+     */
+    public void setStateHashing(boolean on) {
+        stateHashing = on;
+        for (LaneStore lane : lanes) lane.setHashing(on);
+    }
+
+    public boolean isStateHashing() {
+        return stateHashing;
+    }
+
+    /** Starts logging applied commands and the definitions in use; call before the first step. */
+    public Replay startRecording() {
+        recording = new Replay(seed, laneCount);
+        recording.record(GameCommand.definitions(tick + 1, tableDefinitions));
+        return recording;
+    }
+
+    /**
+     * Updates lanes in parallel on the given pool, or serially when null.
+     * The outcome is identical either way.
+     */
+    public void setLanePool(ForkJoinPool pool) {
+        this.lanePool = pool;
+    }
+
+    // --- Spawning ---
+
+    private void scheduleNextEnemySpawn() {
+        int delay = MIN_ENEMY_SPAWN_DELAY + random.nextInt(MAX_ENEMY_SPAWN_DELAY - MIN_ENEMY_SPAWN_DELAY);
+        events.schedule(elapsedMs + delay, EVENT_ENEMY_SPAWN, 0);
+    }
+
+    private void spawnEnemy() {
+        spawnFromPool(POOL_ENEMY, enemyBase.x - 60);
+    }
+
+    private void spawnElite() {
+        spawnFromPool(POOL_ELITE, enemyBase.x - 80);
+    }
+
+    /** A planned spawn if there is one; otherwise lane and type come from the RNG. */
+    private void spawnFromPool(int pool, int spawnX) {
+        boolean planned = plannedType[pool] >= 0;
+        int lane = planned ? plannedLane[pool] : random.nextInt(laneCount);
+        int spawnY = getRandomYInLane(lane);
+
+        UnitType type;
+        if (planned) {
+            type = UNIT_TYPES[plannedType[pool]];
+            plannedType[pool] = plannedLane[pool] = -1;
+        } else if (pool == POOL_ENEMY) {
+            type = factory.randomEnemy(random);
+        } else {
+            type = factory.randomElite(random);
+        }
+        if (addUnit(type, Unit.Team.ENEMY, spawnX, spawnY, lane) && combatLog != null) {
+            combatLog.spawn(tick, lane, type.ordinal(), 0, LaneStore.ENEMY, spawnX, spawnY);
+        }
+    }
+
+    /** Adds a full-HP row for the type to the lane; false if the type is not defined for that team. */
+    private boolean addUnit(UnitType type, Unit.Team team, int x, int y, int lane) {
+        UnitDefinitions d = factory.definitions();
+        int t = type.ordinal();
+        if (d.team[t] != team) return false;
+        int row = lanes[lane].add(type, team, x, y, d.stats[t].hp);
+        lanes[lane].born[row] = (int) tick;
+        return true;
+    }
+
+    private int getRandomYInLane(int lane) {
+        int baseY = laneY[lane];
+        int laneTop = baseY - LANE_HEIGHT / 4 + 5;
+        int laneBottom = baseY + LANE_HEIGHT / 2 - 5;
+        return random.nextInt(laneTop, laneBottom);
+    }
+
+    // --- Snapshots ---
+
+    // tick, elapsedMs, gameOver, RNG state, five economy ints, two bases, two spawn plans
+    private static final int FIXED_STATE_BYTES = 8 + 4 + 1 + 8 + 5 * 4 + 2 * 5 * 4 + 2 * 2 * 4;
+
+    /** Bytes writeState needs for the match as it stands. */
+    int snapshotSize() {
+        int bytes = FIXED_STATE_BYTES + events.snapshotSize();
+        for (LaneStore lane : lanes) {
+            bytes += lane.snapshotSize();
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes everything that changes during a match. Configuration (seed,
+     * lane count, combat mode, lane pool) and any recording are left out;
+     * GameSnapshot stores the seed and lane count in its header.
+     */
+    void writeState(ByteBuffer out) {
+        out.putLong(tick);
+        out.putInt(elapsedMs);
+        out.put((byte) (gameOver ? 1 : 0));
+        out.putLong(random.getState());
+        out.putInt(gold);
+        out.putInt(goldPerSecond);
+        out.putInt(goldUpgradeCount);
+        out.putInt(upgradeCost);
+        out.putInt(goldGenerationFrames);
+        playerBase.writeTo(out);
+        enemyBase.writeTo(out);
+        for (int pool = POOL_ENEMY; pool <= POOL_ELITE; pool++) {
+            out.putInt(plannedType[pool]).putInt(plannedLane[pool]);
+        }
+        events.writeTo(out);
+        for (LaneStore lane : lanes) {
+            lane.writeTo(out);
+        }
+    }
+
+    /** Replaces the match state with one written by writeState for the same lane count. */
+    void readState(ByteBuffer in) {
+        tick = in.getLong();
+        elapsedMs = in.getInt();
+        gameOver = in.get() != 0;
+        random.setState(in.getLong());
+        gold = in.getInt();
+        goldPerSecond = in.getInt();
+        goldUpgradeCount = in.getInt();
+        upgradeCost = in.getInt();
+        goldGenerationFrames = in.getInt();
+        playerBase.readFrom(in);
+        enemyBase.readFrom(in);
+        for (int pool = POOL_ENEMY; pool <= POOL_ELITE; pool++) {
+            plannedType[pool] = in.getInt();
+            plannedLane[pool] = in.getInt();
+        }
+        events.readFrom(in);
+        for (LaneStore lane : lanes) {
+            lane.readFrom(in);
+        }
+    }
+
+    /**
+     * Makes this engine's match state an exact copy of other's, the same
+     * state writeState covers, by copying arrays directly, and switches to
+     * the unit definitions other runs on (after a reload). Lanes and the
+     * event heap only allocate when other holds more than they ever have,
+     * so once warm a copy is a handful of array copies: cheap enough to fork
+     * a match thousands of times a tick for planning.
+     */
+    public void copyStateFrom(GameEngine other) {
+        if (other.laneCount != laneCount) {
+            throw new IllegalArgumentException("Cannot copy " + other.laneCount + " lanes into " + laneCount);
+        }
+        tick = other.tick;
+        elapsedMs = other.elapsedMs;
+        gameOver = other.gameOver;
+        random.setState(other.random.getState());
+        gold = other.gold;
+        goldPerSecond = other.goldPerSecond;
+        goldUpgradeCount = other.goldUpgradeCount;
+        upgradeCost = other.upgradeCost;
+        goldGenerationFrames = other.goldGenerationFrames;
+        playerBase.copyFrom(other.playerBase);
+        enemyBase.copyFrom(other.enemyBase);
+        for (int pool = POOL_ENEMY; pool <= POOL_ELITE; pool++) {
+            plannedType[pool] = other.plannedType[pool];
+            plannedLane[pool] = other.plannedLane[pool];
+        }
+        events.copyFrom(other.events);
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i].copyFrom(other.lanes[i]);
+        }
+        useDefinitions(other.tableDefinitions);
+    }
+
+    /** The unit definitions the current table was built from. */
+    UnitDefinitions definitions() {
+        return tableDefinitions;
+    }
+
+    /**
+     * Switches to the given definitions now rather than at the next tick,
+     * for a copied or restored state. Two reference checks when they are
+     * already in use.
+     */
+    void useDefinitions(UnitDefinitions definitions) {
+        if (factory.definitions() != definitions) factory.setDefinitions(definitions);
+        refreshTable();
+    }
+
+    // --- State hash ---
+
+    /**
+     * 64-bit hash of the match state writeState covers, less the positions
+     * kept for drawing and the spawn ticks. Equal states hash equal, and
+     * two engines fed the same commands that hash differently have
+     * diverged. With state hashing on the lane hashes are already current
+     * and this folds in the few dozen engine fields; otherwise every unit
+     * is rehashed.
+     */
+    public long stateHash() {
+        long h = scalarHash();
+        for (LaneStore lane : lanes) h = LaneStore.mix(h ^ lane.hash());
+        return h;
+    }
+
+    /** stateHash rebuilt from every unit, to check the kept lane hashes against. */
+    long computeStateHash() {
+        long h = scalarHash();
+        for (LaneStore lane : lanes) h = LaneStore.mix(h ^ lane.computeHash());
+        return h;
+    }
+
+    private long scalarHash() {
+        long h = LaneStore.mix(tick);
+        h = LaneStore.mix(h ^ ((long) elapsedMs << 1 | (gameOver ? 1 : 0)));
+        h = LaneStore.mix(h ^ random.getState());
+        h = LaneStore.mix(h ^ ((long) gold << 32 | (goldPerSecond & 0xFFFFFFFFL)));
+        h = LaneStore.mix(h ^ ((long) goldUpgradeCount << 32 | (upgradeCost & 0xFFFFFFFFL)));
+        h = LaneStore.mix(h ^ goldGenerationFrames);
+        h = LaneStore.mix(h ^ ((long) playerBase.x << 32 | (playerBase.hp & 0xFFFFFFFFL)));
+        h = LaneStore.mix(h ^ ((long) enemyBase.x << 32 | (enemyBase.hp & 0xFFFFFFFFL)));
+        for (int pool = POOL_ENEMY; pool <= POOL_ELITE; pool++) {
+            h = LaneStore.mix(h ^ ((long) plannedType[pool] << 32 | (plannedLane[pool] & 0xFFFFFFFFL)));
+        }
+        return LaneStore.mix(h ^ events.hash());
+    }
+
+    /**
+     * The first field, in writeState order, where this match differs from
+     * other's, as "name this vs other"; null when they are the same. Lane
+     * rows are compared in row order, so a divergence in one unit names
+     * that unit.
+     */
+    String firstDifference(GameEngine other) {
+        if (tick != other.tick) return difference("tick", tick, other.tick);
+        if (elapsedMs != other.elapsedMs) return difference("elapsedMs", elapsedMs, other.elapsedMs);
+        if (gameOver != other.gameOver) return "gameOver " + gameOver + " vs " + other.gameOver;
+        if (random.getState() != other.random.getState()) {
+            return difference("RNG state", random.getState(), other.random.getState());
+        }
+        if (gold != other.gold) return difference("gold", gold, other.gold);
+        if (goldPerSecond != other.goldPerSecond) {
+            return difference("goldPerSecond", goldPerSecond, other.goldPerSecond);
+        }
+        if (goldUpgradeCount != other.goldUpgradeCount) {
+            return difference("goldUpgradeCount", goldUpgradeCount, other.goldUpgradeCount);
+        }
+        if (upgradeCost != other.upgradeCost) return difference("upgradeCost", upgradeCost, other.upgradeCost);
+        if (goldGenerationFrames != other.goldGenerationFrames) {
+            return difference("goldGenerationFrames", goldGenerationFrames, other.goldGenerationFrames);
+        }
+        if (playerBase.hp != other.playerBase.hp) {
+            return difference("player base hp", playerBase.hp, other.playerBase.hp);
+        }
+        if (playerBase.x != other.playerBase.x) return difference("player base x", playerBase.x, other.playerBase.x);
+        if (enemyBase.hp != other.enemyBase.hp) return difference("enemy base hp", enemyBase.hp, other.enemyBase.hp);
+        if (enemyBase.x != other.enemyBase.x) return difference("enemy base x", enemyBase.x, other.enemyBase.x);
+        for (int pool = POOL_ENEMY; pool <= POOL_ELITE; pool++) {
+            if (plannedType[pool] != other.plannedType[pool] || plannedLane[pool] != other.plannedLane[pool]) {
+                return "spawn plan " + pool + " type " + plannedType[pool] + " lane " + plannedLane[pool]
+                        + " vs type " + other.plannedType[pool] + " lane " + other.plannedLane[pool];
+            }
+        }
+        if (events.hash() != other.events.hash()) {
+            return "event queue, " + events.size() + " vs " + other.events.size() + " events";
+        }
+        for (int l = 0; l < laneCount; l++) {
+            String lane = lanes[l].firstDifference(other.lanes[l]);
+            if (lane != null) return "lane " + l + " " + lane;
+        }
+        return null;
+    }
+
+    private static String difference(String field, long value, long other) {
+        return field + " " + value + " vs " + other;
+    }
+
+    /** Replaces the RNG state, so copies of one match can play out differently. */
+    void reseed(long state) {
+        random.setState(state);
+    }
+
+    // --- State access ---
+
+    public boolean isGameOver() { return gameOver; }
+    public boolean playerWon() { return enemyBase.hp <= 0; }
+    public long getSeed() { return seed; }
+    public long getTick() { return tick; }
+    public int getElapsedMs() { return elapsedMs; }
+    public int getGold() { return gold; }
+    public int getUpgradeCost() { return upgradeCost; }
+    public boolean isUpgradeMaxed() { return goldUpgradeCount >= MAX_GOLD_UPGRADES; }
+    public boolean canUpgrade() { return !isUpgradeMaxed() && gold >= upgradeCost; }
+    public int cost(UnitType type) { return factory.cost(type); }
+    public UnitType[] spawnPoolTypes(int pool) { return factory.spawnPoolTypes(pool); }
+    public int getLaneCount() { return laneCount; }
+    public int laneY(int lane) { return laneY[lane]; }
+    public Base getPlayerBase() { return playerBase; }
+    public Base getEnemyBase() { return enemyBase; }
+    public UnitTable getTable() { return table; }
+    public LaneStore lane(int lane) { return lanes[lane]; }
+}
@@ -2,6 +2,10 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class GameFrame extends JFrame {
     private CardLayout cardLayout = new CardLayout();
@@ -17,7 +21,15 @@ public class GameFrame extends JFrame {
     public static final String GAME_SCREEN = "Game";
     public static final String END_SCREEN = "End";
 
+    // Sprites decode in the background while the title and tutorial are up.
+    private final CompletableFuture<Void> spritesReady;
+    private volatile long spritesReadyMillis = -1;   // JVM uptime when the last one finished
+    private long spriteWaitMillis;                    // how long the first start had to wait
+    private long startRequestedNanos = -1;            // an early start waiting for the sprites
+    private boolean firstFrameReported = false;
+
     public GameFrame() {
+        spritesReady = preloadSprites();
         setTitle("Lanes Tower Defense");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         
@@ -40,6 +52,21 @@ public class GameFrame extends JFrame {
         cardLayout.show(mainPanel, TITLE_SCREEN);
     }
 
+    private CompletableFuture<Void> preloadSprites() {
+        int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        ExecutorService loader = Executors.newFixedThreadPool(threads, task -> {
+            Thread t = new Thread(task, "sprite-preload");
+            t.setDaemon(true);
+            return t;
+        });
+        CompletableFuture<Void> ready = new UnitFactory().preloadSprites(loader);
+        ready.whenComplete((ignored, error) -> {
+            spritesReadyMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+            loader.shutdown();
+        });
+        return ready;
+    }
+
     // --- Screen Setup Methods ---
 
     private JPanel createTitleScreen() {
@@ -140,19 +167,42 @@ public class GameFrame extends JFrame {
     // --- Screen Control ---
 
     public void startGame() {
-        if (gamePanel != null) {
-            gamePanel.stopTimers();
-            mainPanel.remove(gamePanel);
+        // Retries reuse the warmed-up panel; only the first match builds one.
+        if (gamePanel == null) {
+            // The panel packs its atlas from the cached sprites. A very quick
+            // ENTER arrives before they are all decoded; the match then starts
+            // once they are, and the EDT keeps running meanwhile.
+            if (!spritesReady.isDone()) {
+                if (startRequestedNanos < 0) {
+                    startRequestedNanos = System.nanoTime();
+                    spritesReady.whenCompleteAsync((ignored, error) -> startGame(), SwingUtilities::invokeLater);
+                }
+                return;
+            }
+            if (startRequestedNanos >= 0) {
+                spriteWaitMillis = (System.nanoTime() - startRequestedNanos) / 1_000_000;
+                startRequestedNanos = -1;
+            }
+            gamePanel = new GamePanel(this);
+            mainPanel.add(gamePanel, GAME_SCREEN);
+        } else {
+            gamePanel.reset();
         }
-
-        gamePanel = new GamePanel(this); 
-        mainPanel.add(gamePanel, GAME_SCREEN);
-        gamePanel.scheduleNextEnemySpawn();
         
         cardLayout.show(mainPanel, GAME_SCREEN);
         gamePanel.requestFocusInWindow();
     }
 
+    /** Called by the panel when a match paints its first frame; logs the first one only. */
+    void firstFramePainted(long startToFrameNanos) {
+        if (firstFrameReported) return;
+        firstFrameReported = true;
+        System.out.printf("First playable frame %d ms after launch (sprites ready at %d ms,"
+                + " waited %d ms for them, start to first frame %.1f ms)%n",
+                ManagementFactory.getRuntimeMXBean().getUptime(), spritesReadyMillis,
+                spriteWaitMillis, startToFrameNanos / 1e6);
+    }
+
     public void showTitleScreen() {
         if (gamePanel != null) {
             gamePanel.stopTimers();
@@ -1,94 +1,249 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.util.ArrayList;
-import java.util.Random;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class GamePanel extends JPanel implements ActionListener {
     // Constants
-    private static final int LANE_COUNT = 3;
-    private static final int LANE_HEIGHT = 90;
-    private static final int LANE_SPACING = 30;
-    private static final int L1_Y = 160;
-    private static final int L2_Y = L1_Y + LANE_HEIGHT + LANE_SPACING;
-    private static final int L3_Y = L2_Y + LANE_HEIGHT + LANE_SPACING;
-    private static final double SPEED_SCALE = 0.7;
-    private static final int MAX_GOLD_UPGRADES = 4;
-    private static final int GOLD_PER_UPGRADE = -120;
-    private static final int TIMER_DELAY_MS = 30;
-    private static final int GOLD_GENERATION_FRAMES = 1000;
-    private static final int ELITE_SPAWN_INTERVAL_MS = 20_000;
-    private static final int MIN_ENEMY_SPAWN_DELAY = 1500;
-    private static final int MAX_ENEMY_SPAWN_DELAY = 4000;
+    private static final int LANE_HEIGHT = GameEngine.LANE_HEIGHT;
+    private static final int FRAME_DELAY_MS = 16;
+    private static final Path REPLAY_DIR = Paths.get("replays");
+    private static final ExecutorService REPLAY_WRITER = Executors.newSingleThreadExecutor(task -> {
+        Thread t = new Thread(task, "replay-writer");
+        t.setDaemon(true);
+        return t;
+    });
+    private static final Color PLAYER_BASE_COLOR = new Color(60, 120, 200);
+    private static final Color ENEMY_BASE_COLOR = new Color(200, 80, 80);
+    private static final Font HUD_FONT = new Font("Comic Sans MS", Font.BOLD, 14);
+    private static final int HUD_HEIGHT = 30;
+    private static final int HP_BAR_SPACE = 7;      // HP bar drawn above each sprite
+    private static final int BASE_LABEL_HEIGHT = 20;
+    // Start with tick timing on (overlay hidden), e.g. for a JFR session.
+    private static final String PROFILE_PROPERTY = "perf.profile";
+    private static final String AI_PROPERTY = "ai.enemy";
+    private static final long AI_BUDGET_NANOS = 25_000_000;   // under one tick
+    private static final int AI_HORIZON_TICKS = 150;
+    private static final String COMBAT_LOG_PROPERTY = "combat.log";
+    private static CombatLog combatLog;     // one per run, shared by every panel
+    private static final long DROPPED_FRAME_NANOS = 2L * FRAME_DELAY_MS * 1_000_000;
+    private static final int REWIND_TICKS = 10_000 / GameEngine.TICK_MS;     // R starts 10 s back
+    private static final int SCRUB_TICKS = 1000 / GameEngine.TICK_MS;
+    private static final double[] REWIND_RATES = {1, 0.5, 0.25, 0.1};
+    private static final double[] TIME_SCALES = {1, 2, 8, SimulationThread.UNBOUNDED};
+    private static final Color TIMELINE_COLOR = new Color(200, 200, 200);
+    private static final Color TIMELINE_FILL = new Color(60, 120, 200);
     
     // Game state
     private final GameFrame parentFrame;
-    private final int[] laneY = {L1_Y, L2_Y, L3_Y};
+    private final UnitFactory factory = new UnitFactory();
+    private final GameEngine engine = new GameEngine(factory);
+    private final SimulationThread simulation = new SimulationThread(engine);
+    private Replay replay = engine.startRecording();
+    private boolean replaySaved = false;
+    private final boolean live;
+    private AiOpponent opponent;    // with -Dai.enemy=true, picks the enemy spawns
+    // When the current match was started, until its first frame is painted.
+    private long startNanos = System.nanoTime();
+    private final UnitRenderer unitRenderer = new UnitRenderer(SpriteAtlas.build(factory));
+    private RenderState state = new RenderState(engine.getLaneCount());
     private int selectedLane = 1;
+
+    // Retained drawing state
+    private final BackgroundLayer background = new BackgroundLayer(laneYs(engine), LANE_HEIGHT);
+    private String hudText;
+    private int hudGold = -1, hudLane = -1, hudTimeScale = -1;
+    private int timeScale;              // index into TIME_SCALES, cycled with F
+    private int paintedPlayerHp = -1, paintedEnemyHp = -1;
+    private int paintedPlayerBaseX = -1, paintedEnemyBaseX = -1;
+    private long paintedTick = -1;
+    private double paintedAlpha;
+    // Area each lane's units covered when last scheduled for repaint.
+    private final Rectangle[] laneDirty = new Rectangle[engine.getLaneCount()];
+    private final Rectangle unitBounds = new Rectangle();
+
+    // Performance overlay (F3)
+    private final TickProfiler profiler = new TickProfiler(engine.getLaneCount());
+    private final PerfOverlay perfOverlay = new PerfOverlay(profiler);
+    private boolean perfVisible = false;
+    private boolean profiling = false;
+    private long lastFrameNanos;
     
+    // Instant replay (R): the simulation waits while the last seconds play back.
+    // Live panels only; the ring is tens of megabytes.
+    private InstantReplay instantReplay;
+    private boolean rewinding;
+    private RenderState liveState;      // the EDT's live buffer, set aside while rewinding
+    private double rewindTick;          // playback position; the fraction is the draw alpha
+    private int rewindRate;             // index into REWIND_RATES
+    private boolean rewindPaused;
+    private long rewindFrameNanos;
+    private String rewindText;
+    private int rewindTextKey = -1;
+
     // Timers
-    private Timer gameTimer;
-    private Timer enemySpawnTimer;
-    
-    // Units per lane
-    private final ArrayList<Unit>[] playerUnits;
-    private final ArrayList<Unit>[] enemyUnits;
-    
-    // Bases
-    private Base playerBase;
-    private Base enemyBase;
+    private Timer frameTimer;
     
     // UI Components
     private JPanel bottomBar;
     private JButton btnUnit1, btnUnit2, btnUnit3, btnUnit4, btnUnit5, btnUpgrade;
-    
-    // Game status
-    private boolean gameOver = false;
-    private final Random random = new Random();
-    
-    // Economy
-    private int gold = 100;
-    private int goldPerSecond = 10;
-    private int goldUpgradeCount = 0;
-    private int upgradeCost = 40;
-    private int goldGenerationFrames = GOLD_GENERATION_FRAMES;
-    
-    // Time tracking
-    private int frameCount = 0;
-    private int elapsedMs = 0;
-    private int nextEliteSpawnMs = ELITE_SPAWN_INTERVAL_MS;
-    
-    private final UnitFactory factory = new UnitFactory();
 
-    @SuppressWarnings("unchecked")
     public GamePanel(GameFrame frame) {
+        this(frame, true);
+    }
+
+    /**
+     * A panel with live = false never starts the simulation or frame timer;
+     * it only paints whatever {@link #showState} hands it (offscreen benchmarks).
+     */
+    GamePanel(GameFrame frame, boolean live) {
         this.parentFrame = frame;
-        
-        // Initialize unit arrays first (must be done before other initialization)
-        this.playerUnits = new ArrayList[LANE_COUNT];
-        this.enemyUnits = new ArrayList[LANE_COUNT];
+        this.live = live;
         
         initializePanel();
-        initializeLanes();
-        initializeBases();
         initializeUI();
         setupInputBindings();
-        startGameLoop();
-        
-        SwingUtilities.invokeLater(this::requestFocusInWindow);
+        if (live) {
+            watchUnitDefinitions();
+            engine.setCombatLog(openCombatLog());
+            instantReplay = new InstantReplay(engine.getLaneCount());
+            simulation.setInstantReplay(instantReplay);
+            if (Boolean.getBoolean(AI_PROPERTY)) startOpponent();
+            startGameLoop();
+            SwingUtilities.invokeLater(this::requestFocusInWindow);
+        }
+    }
+
+    /**
+     * Leaves two cores to the simulation and the EDT and searches on the
+     * rest. One opponent serves every match of the panel, so retries keep
+     * its warm planner; its threads are daemons and idle parked between
+     * searches.
+     */
+    private void startOpponent() {
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 2);
+        RolloutPlanner planner = new RolloutPlanner(factory.definitions(), engine.getLaneCount(),
+                RolloutPlanner.Side.ENEMY, threads, AI_HORIZON_TICKS, System.nanoTime());
+        opponent = new AiOpponent(planner, AI_BUDGET_NANOS);
+        simulation.setOpponent(opponent);
+    }
+
+    /**
+     * With -Dcombat.log=file, every match of the run is logged there, and the
+     * log is flushed and trimmed when the JVM exits. Analyze it with
+     * CombatLogAnalyzer.
+     */
+    private static synchronized CombatLog openCombatLog() {
+        String file = System.getProperty(COMBAT_LOG_PROPERTY);
+        if (combatLog != null || file == null) return combatLog;
+        try {
+            CombatLog log = new CombatLog(Paths.get(file));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    log.close();
+                } catch (IOException ex) {
+                    System.err.println("Could not close combat log: " + ex.getMessage());
+                }
+            }));
+            combatLog = log;
+        } catch (IOException ex) {
+            System.err.println("Cannot open combat log " + file + ": " + ex.getMessage());
+        }
+        return combatLog;
+    }
+
+    /**
+     * With -Dunits.file set, edits to that file apply to the running match:
+     * the engine takes the new stats at its next tick, and the atlas is
+     * repacked off the EDT (decoding any new sprite there) and then swapped in.
+     */
+    private void watchUnitDefinitions() {
+        Path file = UnitDefinitions.configuredFile();
+        if (file == null) return;
+        try {
+            UnitDefinitionWatcher.start(file, definitions -> {
+                factory.setDefinitions(definitions);
+                SpriteAtlas atlas = SpriteAtlas.build(factory);
+                SwingUtilities.invokeLater(() -> {
+                    unitRenderer.setAtlas(atlas);
+                    repaint();
+                });
+            });
+        } catch (IOException ex) {
+            System.err.println("Cannot watch " + file + ": " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Starts a new match on this panel in place, for a retry. The engine and
+     * its lanes, the sprite atlas, the buttons, key bindings and timers are
+     * all kept; only the match state is put back to the start.
+     */
+    public void reset() {
+        startNanos = System.nanoTime();
+        if (live) stopTimers();
+        if (rewinding) {
+            rewinding = false;
+            state = liveState;
+            liveState = null;
+        }
+        if (instantReplay != null) instantReplay.clear();
+
+        engine.reset(System.nanoTime());
+        replay = engine.startRecording();
+        replaySaved = false;
+        simulation.reset();
+        if (opponent != null) opponent.reset();
+        state.tick = -1;
+
+        selectedLane = 1;
+        hudText = null;
+        hudGold = hudLane = hudTimeScale = -1;
+        paintedPlayerHp = paintedEnemyHp = -1;
+        paintedPlayerBaseX = paintedEnemyBaseX = -1;
+        paintedTick = -1;
+        for (Rectangle dirty : laneDirty) {
+            dirty.setBounds(0, 0, 0, 0);
+        }
+        if (profiling) profiler.reset();
+
+        if (live) {
+            // The engine is back at the default field width; give it the real one.
+            if (getWidth() > 0) simulation.submit(GameCommand.fieldWidth(1, getWidth()));
+            startGameLoop();
+            requestFocusInWindow();
+        }
+        repaint();
+    }
+
+    void showState(RenderState state) {
+        this.state = state;
+    }
+
+    private static int[] laneYs(GameEngine engine) {
+        int[] ys = new int[engine.getLaneCount()];
+        for (int i = 0; i < ys.length; i++) {
+            ys[i] = engine.laneY(i);
+        }
+        return ys;
     }
 
     private void initializePanel() {
-        setPreferredSize(new Dimension(1000, 520));
+        for (int i = 0; i < laneDirty.length; i++) {
+            laneDirty[i] = new Rectangle();
+        }
+        setPreferredSize(new Dimension(GameEngine.FIELD_WIDTH, 520));
         setBackground(Color.WHITE);
         setLayout(new BorderLayout());
         
         addComponentListener(new ComponentAdapter() {
             @Override
             public void componentResized(ComponentEvent e) {
-                if (enemyBase != null) {
-                    enemyBase.x = getWidth() - 68;
-                }
+                simulation.submit(GameCommand.fieldWidth(nextTick(), getWidth()));
             }
         });
         
@@ -96,21 +251,15 @@ public class GamePanel extends JPanel implements ActionListener {
             @Override
             public void mousePressed(MouseEvent e) {
                 requestFocusInWindow();
+                if (rewinding && e.getY() < HUD_HEIGHT) scrubTo(e.getX());
+            }
+        });
+        addMouseMotionListener(new MouseMotionAdapter() {
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (rewinding) scrubTo(e.getX());
             }
         });
-    }
-
-    private void initializeLanes() {
-        for (int i = 0; i < LANE_COUNT; i++) {
-            playerUnits[i] = new ArrayList<>();
-            enemyUnits[i] = new ArrayList<>();
-        }
-    }
-
-    private void initializeBases() {
-        int width = getPreferredSize().width;
-        playerBase = new Base(20, 90, 48, 360, 100, new Color(60, 120, 200));
-        enemyBase = new Base(width - 68, 90, 48, 360, 500, new Color(200, 80, 80));
     }
 
     private void initializeUI() {
@@ -146,7 +295,7 @@ public class GamePanel extends JPanel implements ActionListener {
     }
 
     private JButton createUpgradeButton() {
-        JButton button = new JButton("Upgrade (" + upgradeCost + ")");
+        JButton button = new JButton("Upgrade (" + engine.getUpgradeCost() + ")");
         button.addActionListener(e -> {
             handleUpgrade();
             requestFocusInWindow();
@@ -155,21 +304,8 @@ public class GamePanel extends JPanel implements ActionListener {
     }
 
     private void handleUpgrade() {
-        if (goldUpgradeCount >= MAX_GOLD_UPGRADES || gold < upgradeCost) {
-            return;
-        }
-        
-        gold -= upgradeCost;
-        goldUpgradeCount++;
-        goldGenerationFrames += GOLD_PER_UPGRADE;
-        upgradeCost *= 2;
-        
-        if (goldUpgradeCount >= MAX_GOLD_UPGRADES) {
-            btnUpgrade.setText("Maxed");
-            btnUpgrade.setEnabled(false);
-        } else {
-            btnUpgrade.setText("Upgrade (" + upgradeCost + ")");
-        }
+        if (rewinding) return;
+        simulation.submit(GameCommand.upgrade(nextTick()));
     }
 
     private void setupInputBindings() {
@@ -187,11 +323,37 @@ public class GamePanel extends JPanel implements ActionListener {
         });
         actionMap.put("laneDown", new AbstractAction() {
             public void actionPerformed(ActionEvent e) {
-                selectedLane = Math.min(LANE_COUNT - 1, selectedLane + 1);
+                selectedLane = Math.min(engine.getLaneCount() - 1, selectedLane + 1);
                 repaint();
             }
         });
 
+        // Performance overlay
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_F3, 0), "togglePerf");
+        actionMap.put("togglePerf", new AbstractAction() {
+            public void actionPerformed(ActionEvent e) {
+                perfVisible = !perfVisible;
+                setProfiling(perfVisible || Boolean.getBoolean(PROFILE_PROPERTY));
+                repaint();
+            }
+        });
+
+        // Instant replay
+        bindKey(inputMap, actionMap, KeyEvent.VK_R, "rewind", this::toggleRewind);
+        bindKey(inputMap, actionMap, KeyEvent.VK_LEFT, "scrubBack", () -> scrubBy(-SCRUB_TICKS));
+        bindKey(inputMap, actionMap, KeyEvent.VK_RIGHT, "scrubForward", () -> scrubBy(SCRUB_TICKS));
+        bindKey(inputMap, actionMap, KeyEvent.VK_COMMA, "stepBack", () -> stepRewind(-1));
+        bindKey(inputMap, actionMap, KeyEvent.VK_PERIOD, "stepForward", () -> stepRewind(1));
+        bindKey(inputMap, actionMap, KeyEvent.VK_SPACE, "rewindPause", () -> {
+            if (rewinding) rewindPaused = !rewindPaused;
+        });
+        bindKey(inputMap, actionMap, KeyEvent.VK_S, "slowMotion", () -> {
+            if (rewinding) rewindRate = (rewindRate + 1) % REWIND_RATES.length;
+        });
+
+        // Fast-forward
+        bindKey(inputMap, actionMap, KeyEvent.VK_F, "fastForward", this::cycleTimeScale);
+
         // Unit spawning
         setupUnitSpawnKey(inputMap, actionMap, '1', UnitType.UNIT1);
         setupUnitSpawnKey(inputMap, actionMap, '2', UnitType.UNIT2);
@@ -200,6 +362,15 @@ public class GamePanel extends JPanel implements ActionListener {
         setupUnitSpawnKey(inputMap, actionMap, '5', UnitType.UNIT5);
     }
 
+    private void bindKey(InputMap inputMap, ActionMap actionMap, int keyCode, String actionName, Runnable action) {
+        inputMap.put(KeyStroke.getKeyStroke(keyCode, 0), actionName);
+        actionMap.put(actionName, new AbstractAction() {
+            public void actionPerformed(ActionEvent e) {
+                action.run();
+            }
+        });
+    }
+
     private void setupUnitSpawnKey(InputMap inputMap, ActionMap actionMap, 
                                    char key, UnitType unitType) {
         String actionName = "spawn" + key;
@@ -213,260 +384,328 @@ public class GamePanel extends JPanel implements ActionListener {
     }
 
     private void startGameLoop() {
-        gameTimer = new Timer(TIMER_DELAY_MS, this);
-        gameTimer.start();
+        setProfiling(Boolean.getBoolean(PROFILE_PROPERTY));
+        simulation.start();
+        if (frameTimer == null) {
+            frameTimer = new Timer(FRAME_DELAY_MS, this);
+        }
+        frameTimer.start();
     }
 
     public void stopTimers() {
-        if (gameTimer != null) gameTimer.stop();
-        if (enemySpawnTimer != null) enemySpawnTimer.stop();
+        simulation.stop();
+        if (frameTimer != null) frameTimer.stop();
+        saveReplay();
     }
 
-    private void spawnPlayer(UnitType type) {
-        int cost = factory.cost(type);
-        if (gold < cost) return;
+    private void setProfiling(boolean on) {
+        if (on == profiling) return;
+        profiling = on;
+        if (on) {
+            profiler.reset();
+            lastFrameNanos = 0;
+        }
+        engine.setProfiler(on ? profiler : null);
+    }
 
-        int spawnX = playerBase.getBounds().x + playerBase.getBounds().width + 8;
-        int spawnY = getRandomYInLane(selectedLane);
-        
-        Unit unit = factory.create(type, Unit.Team.PLAYER, spawnX, spawnY, selectedLane);
-        if (unit == null) return;
+    /**
+     * Writes the seed and inputs of this match so it can be re-run with
+     * ReplayPlayer. The simulation has stopped, so the recording is final;
+     * it is written on a background thread to keep file I/O off the EDT.
+     */
+    private void saveReplay() {
+        if (replaySaved) return;
+        replaySaved = true;
+        Replay finished = replay;
+        REPLAY_WRITER.execute(() -> {
+            try {
+                finished.write(REPLAY_DIR.resolve("match-" + finished.seed + ".lrp"));
+            } catch (IOException ex) {
+                System.err.println("Could not save replay: " + ex.getMessage());
+            }
+        });
+    }
 
-        gold -= cost;
-        playerUnits[selectedLane].add(unit);
+    /** Input is stamped for the tick after the one currently on screen. */
+    private long nextTick() {
+        return state.tick + 1;
     }
 
-    public void scheduleNextEnemySpawn() {
-        int delay = MIN_ENEMY_SPAWN_DELAY + random.nextInt(MAX_ENEMY_SPAWN_DELAY - MIN_ENEMY_SPAWN_DELAY);
-        enemySpawnTimer = new Timer(delay, e -> {
-            spawnEnemy();
-            enemySpawnTimer.stop();
-            scheduleNextEnemySpawn();
-        });
-        enemySpawnTimer.setRepeats(false);
-        enemySpawnTimer.start();
+    private void spawnPlayer(UnitType type) {
+        if (rewinding) return;
+        simulation.submit(GameCommand.spawn(nextTick(), type, selectedLane));
     }
 
-    private void spawnEnemy() {
-        int lane = random.nextInt(LANE_COUNT);
-        int spawnX = enemyBase.getBounds().x - 60;
-        int spawnY = getRandomYInLane(lane);
-        
-        Unit enemy = factory.randomEnemy(spawnX, spawnY, lane);
-        if (enemy != null) {
-            enemyUnits[lane].add(enemy);
+    /** Steps through normal speed, 2x, 8x and as fast as the simulation can go. */
+    private void cycleTimeScale() {
+        if (rewinding) return;
+        timeScale = (timeScale + 1) % TIME_SCALES.length;
+        simulation.setTimeScale(TIME_SCALES[timeScale]);
+        repaint(0, 0, getWidth(), HUD_HEIGHT);
+    }
+
+    // --- Instant replay ---
+
+    /** Pauses the match and plays back its last seconds, or goes back to it. */
+    private void toggleRewind() {
+        if (!live) return;
+        if (rewinding) {
+            rewinding = false;
+            state = liveState;
+            liveState = null;
+            simulation.start();
+            repaint();
+            return;
         }
+        if (state.gameOver || state.tick < 0) return;
+
+        simulation.stop();
+        if (instantReplay.isEmpty()) {
+            simulation.start();
+            return;
+        }
+        rewinding = true;
+        liveState = state;
+        rewindTick = Math.max(instantReplay.oldestTick(), instantReplay.newestTick() - REWIND_TICKS);
+        rewindRate = 0;
+        rewindPaused = false;
+        rewindFrameNanos = System.nanoTime();
+        showRewindTick();
+        repaint();
     }
 
-    private void spawnElite() {
-        int lane = random.nextInt(LANE_COUNT);
-        int spawnX = enemyBase.getBounds().x - 80;
-        int spawnY = getRandomYInLane(lane);
-        
-        Unit elite = factory.randomElite(spawnX, spawnY, lane);
-        if (elite != null) {
-            enemyUnits[lane].add(elite);
+    /** Moves playback on by the real time since the last frame, scaled by the slow-motion rate. */
+    private void advanceRewind() {
+        long now = System.nanoTime();
+        if (!rewindPaused) {
+            rewindTick += REWIND_RATES[rewindRate] * (now - rewindFrameNanos) / SimulationThread.TICK_NANOS;
         }
+        rewindFrameNanos = now;
+        showRewindTick();
     }
 
-    private int getRandomYInLane(int lane) {
-        int baseY = laneY[lane];
-        int laneTop = baseY - LANE_HEIGHT / 4 + 5;
-        int laneBottom = baseY + LANE_HEIGHT / 2 - 5;
-        return random.nextInt(laneTop, laneBottom);
+    private void scrubBy(int ticks) {
+        if (!rewinding) return;
+        rewindTick += ticks;
+        showRewindTick();
     }
 
-    private boolean willIntersect(Rectangle a, int stepAx, Rectangle b, int stepBx) {
-        if (a.intersects(b)) return true;
-        
-        Rectangle nextA = new Rectangle(a);
-        nextA.x += stepAx;
-        Rectangle nextB = new Rectangle(b);
-        nextB.x += stepBx;
-        
-        return nextA.intersects(nextB);
+    /** Pauses and moves exactly one tick, for frame-by-frame stepping. */
+    private void stepRewind(int ticks) {
+        if (!rewinding) return;
+        rewindPaused = true;
+        rewindTick = Math.floor(rewindTick) + ticks;
+        showRewindTick();
+    }
+
+    /** Jumps to the tick under x on the timeline drawn along the HUD. */
+    private void scrubTo(int x) {
+        double f = (x - 12) / (double) Math.max(1, getWidth() - 24);
+        long oldest = instantReplay.oldestTick(), newest = instantReplay.newestTick();
+        rewindTick = oldest + Math.max(0, Math.min(1, f)) * (newest - oldest);
+        showRewindTick();
+    }
+
+    private void showRewindTick() {
+        rewindTick = Math.max(instantReplay.oldestTick(), Math.min(instantReplay.newestTick(), rewindTick));
+        state = instantReplay.seek((long) rewindTick);
     }
 
     @Override
     public void actionPerformed(ActionEvent e) {
-        if (gameOver) return;
-
-        updateGoldGeneration();
-        updateEliteSpawning();
-        updateAllLanes();
+        if (profiling) countDroppedFrame();
+        if (rewinding) {
+            advanceRewind();
+            repaintDirty();
+            repaint(0, 0, getWidth(), HUD_HEIGHT);
+            return;
+        }
+        state = simulation.latest(state);
+        updateUpgradeButton();
         checkGameOver();
         
-        repaint();
+        repaintDirty();
+        if (perfVisible) repaint(perfOverlay.bounds(getWidth()));
     }
 
-    private void updateGoldGeneration() {
-        frameCount++;
-        if (frameCount >= (goldGenerationFrames / TIMER_DELAY_MS)) {
-            gold += goldPerSecond;
-            frameCount = 0;
-        }
-
-        if (btnUpgrade != null && goldUpgradeCount < MAX_GOLD_UPGRADES) {
-            btnUpgrade.setEnabled(gold >= upgradeCost);
+    /** A frame that comes more than two timer periods after the last one counts as dropped. */
+    private void countDroppedFrame() {
+        long now = System.nanoTime();
+        if (lastFrameNanos != 0 && now - lastFrameNanos > DROPPED_FRAME_NANOS) {
+            profiler.frameDropped();
         }
+        lastFrameNanos = now;
     }
 
-    private void updateEliteSpawning() {
-        if (gameTimer != null) {
-            elapsedMs += gameTimer.getDelay();
-            while (elapsedMs >= nextEliteSpawnMs) {
-                spawnElite();
-                nextEliteSpawnMs += ELITE_SPAWN_INTERVAL_MS;
+    /**
+     * Schedules repaints only for what changed since the last paint: the HUD
+     * line, base HP labels and the span each lane's units moved over. With
+     * nothing moving nothing is repainted.
+     */
+    private void repaintDirty() {
+        if (state.playerBase.x != paintedPlayerBaseX || state.enemyBase.x != paintedEnemyBaseX) {
+            repaint();
+            return;
+        }
+        if (state.gold != hudGold || selectedLane != hudLane || timeScale != hudTimeScale) {
+            repaint(0, 0, getWidth(), HUD_HEIGHT);
+        }
+        if (state.playerBase.hp != paintedPlayerHp) repaintLabel(state.playerBase);
+        if (state.enemyBase.hp != paintedEnemyHp) repaintLabel(state.enemyBase);
+
+        // Units stop moving on screen once the latest tick is drawn at alpha 1.
+        if (state.tick == paintedTick && paintedAlpha >= 1) return;
+        for (int i = 0; i < state.lanes.length; i++) {
+            LaneStore lane = state.lanes[i];
+            Rectangle previous = laneDirty[i];
+            if (lane.size() == 0 && previous.isEmpty()) continue;
+
+            laneBounds(lane, state.table, unitBounds);
+            if (previous.isEmpty()) {
+                repaint(unitBounds);
+            } else if (unitBounds.isEmpty()) {
+                repaint(previous);
+            } else {
+                Rectangle.union(previous, unitBounds, previous);
+                repaint(previous);
             }
+            previous.setBounds(unitBounds);
         }
     }
 
-    private void updateAllLanes() {
-        for (int lane = 0; lane < LANE_COUNT; lane++) {
-            updateLane(lane);
+    /** Bounds of every unit in the lane over its whole move this tick, HP bars included. */
+    private void laneBounds(LaneStore lane, UnitTable table, Rectangle out) {
+        if (lane.size() == 0) {
+            out.setBounds(0, 0, 0, 0);
+            return;
         }
-    }
-
-    private void updateLane(int lane) {
-        ArrayList<Unit> players = playerUnits[lane];
-        ArrayList<Unit> enemies = enemyUnits[lane];
-
-        updatePlayerUnits(players, enemies);
-        updateEnemyUnits(enemies, players);
-
-        players.removeIf(u -> !u.alive());
-        enemies.removeIf(u -> !u.alive());
-    }
-
-    private void updatePlayerUnits(ArrayList<Unit> players, ArrayList<Unit> enemies) {
-        for (Unit player : players) {
-            player.tickCooldown();
-            
-            Rectangle playerBounds = player.bounds();
-            int playerStep = player.nextStep(SPEED_SCALE);
-            boolean engaged = false;
-
-            // Check combat with enemies
-            for (Unit enemy : enemies) {
-                if (!enemy.alive()) continue;
-                
-                Rectangle enemyBounds = enemy.bounds();
-                int enemyStep = enemy.nextStep(SPEED_SCALE);
-                
-                if (willIntersect(playerBounds, playerStep, enemyBounds, enemyStep)) {
-                    engaged = true;
-                    if (player.canHit()) player.hit(enemy);
-                    if (enemy.canHit()) enemy.hit(player);
-                }
-            }
-
-            // Check attack on enemy base
-            Rectangle baseBounds = enemyBase.getBounds();
-            if (!engaged && willIntersect(playerBounds, playerStep, baseBounds, 0)) {
-                engaged = true;
-                if (player.canHit()) player.hitBase(enemyBase);
-            }
-
-            // Move if not engaged
-            if (!engaged) {
-                player.x += playerStep;
-            }
+        int left = Integer.MAX_VALUE, top = Integer.MAX_VALUE;
+        int right = Integer.MIN_VALUE, bottom = Integer.MIN_VALUE;
+        for (int row = 0; row < lane.size(); row++) {
+            int t = lane.type(row);
+            left = Math.min(left, Math.min(lane.prevX(row), lane.x(row)));
+            right = Math.max(right, Math.max(lane.prevX(row), lane.x(row)) + table.width[t] + 1);
+            top = Math.min(top, lane.y(row) - table.height[t] - HP_BAR_SPACE);
+            bottom = Math.max(bottom, lane.y(row) + 1);
         }
+        out.setBounds(left, top, right - left, bottom - top);
     }
 
-    private void updateEnemyUnits(ArrayList<Unit> enemies, ArrayList<Unit> players) {
-        for (Unit enemy : enemies) {
-            enemy.tickCooldown();
-            
-            Rectangle enemyBounds = enemy.bounds();
-            int enemyStep = enemy.nextStep(SPEED_SCALE);
-            boolean engaged = false;
-
-            // Check combat with players
-            for (Unit player : players) {
-                if (!player.alive()) continue;
-                
-                Rectangle playerBounds = player.bounds();
-                int playerStep = player.nextStep(SPEED_SCALE);
-                
-                if (willIntersect(enemyBounds, enemyStep, playerBounds, playerStep)) {
-                    engaged = true;
-                    if (enemy.canHit()) enemy.hit(player);
-                    if (player.canHit()) player.hit(enemy);
-                }
-            }
+    private void repaintLabel(Base base) {
+        repaint(base.x, base.y - BASE_LABEL_HEIGHT, Math.max(base.width, 80), BASE_LABEL_HEIGHT);
+    }
 
-            // Check attack on player base
-            Rectangle baseBounds = playerBase.getBounds();
-            if (!engaged && willIntersect(enemyBounds, enemyStep, baseBounds, 0)) {
-                engaged = true;
-                if (enemy.canHit()) enemy.hitBase(playerBase);
-            }
+    private void updateUpgradeButton() {
+        if (btnUpgrade == null) return;
 
-            // Move if not engaged
-            if (!engaged) {
-                enemy.x += enemyStep;
-            }
+        String text = state.upgradeMaxed ? "Maxed" : "Upgrade (" + state.upgradeCost + ")";
+        if (!text.equals(btnUpgrade.getText())) {
+            btnUpgrade.setText(text);
         }
+        btnUpgrade.setEnabled(state.canUpgrade);
     }
 
     private void checkGameOver() {
-        if (playerBase.hp <= 0 || enemyBase.hp <= 0) {
-            gameOver = true;
+        if (state.gameOver) {
             stopTimers();
             
-            String finalMessage = (enemyBase.hp <= 0) ? "You Win!" : "You Lose!";
+            String finalMessage = state.playerWon ? "You Win!" : "You Lose!";
             parentFrame.showEndScreen(finalMessage);
         }
     }
 
     @Override
     protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        
-        drawLanes(g);
-        drawBases(g);
+        long start = profiling ? System.nanoTime() : 0;
+
+        // The background layer covers the whole panel, so no super.paintComponent fill.
+        drawBackground(g);
+        drawBaseLabels(g);
         drawUnits(g);
         drawUI(g);
-    }
 
-    private void drawLanes(Graphics g) {
-        for (int i = 0; i < LANE_COUNT; i++) {
-            int y = laneY[i];
-            
-            // Lane background
-            g.setColor(new Color(255, 240, 200));
-            g.fillRect(0, y - LANE_HEIGHT / 2, getWidth(), LANE_HEIGHT);
-            
-            // Lane center line
-            g.setColor(new Color(210, 170, 80));
-            g.drawLine(0, y, getWidth(), y);
+        if (startNanos != 0 && state.tick >= 0) {
+            long latency = System.nanoTime() - startNanos;
+            profiler.recordStartLatency(latency);
+            if (parentFrame != null) parentFrame.firstFramePainted(latency);
+            startNanos = 0;
         }
+        if (perfVisible) perfOverlay.draw(g, getWidth());
+        if (profiling) profiler.recordPaint(System.nanoTime() - start);
+    }
 
-        // Highlight selected lane
-        g.setColor(new Color(255, 220, 0, 90));
-        g.fillRect(0, laneY[selectedLane] - LANE_HEIGHT / 2, getWidth(), LANE_HEIGHT);
+    /** Lanes, highlight and base bodies, blitted from the cached layer. */
+    private void drawBackground(Graphics g) {
+        background.draw(g, getWidth(), getHeight(), selectedLane,
+                state.playerBase, PLAYER_BASE_COLOR, state.enemyBase, ENEMY_BASE_COLOR);
+        paintedPlayerBaseX = state.playerBase.x;
+        paintedEnemyBaseX = state.enemyBase.x;
     }
 
-    private void drawBases(Graphics g) {
-        playerBase.draw(g);
-        enemyBase.draw(g);
+    private void drawBaseLabels(Graphics g) {
+        state.playerBase.drawLabel(g);
+        state.enemyBase.drawLabel(g);
+        paintedPlayerHp = state.playerBase.hp;
+        paintedEnemyHp = state.enemyBase.hp;
     }
 
     private void drawUnits(Graphics g) {
-        for (int lane = 0; lane < LANE_COUNT; lane++) {
-            for (Unit player : playerUnits[lane]) {
-                player.draw(g);
-            }
-            for (Unit enemy : enemyUnits[lane]) {
-                enemy.draw(g);
-            }
-        }
+        double alpha = interpolationAlpha();
+        unitRenderer.draw(g, state.lanes, state.table, alpha);
+        paintedTick = state.tick;
+        paintedAlpha = alpha;
+    }
+
+    /** How far real time has moved past the drawn tick, as a fraction of a tick. */
+    private double interpolationAlpha() {
+        if (rewinding) return rewindPaused ? 1 : rewindTick - Math.floor(rewindTick);
+        // Fast-forwarded states are several ticks apart; there is nothing to blend.
+        if (TIME_SCALES[timeScale] > 1) return 1;
+        double alpha = (System.nanoTime() - state.tickNanos) / (double) SimulationThread.TICK_NANOS;
+        return Math.max(0, Math.min(1, alpha));
     }
 
     private void drawUI(Graphics g) {
+        if (rewinding) {
+            drawRewindUI(g);
+            return;
+        }
+        if (hudText == null || hudGold != state.gold || hudLane != selectedLane || hudTimeScale != timeScale) {
+            hudText = "Gold: " + state.gold + " — Selected Lane: " + (selectedLane + 1) + timeScaleLabel();
+            hudGold = state.gold;
+            hudLane = selectedLane;
+            hudTimeScale = timeScale;
+        }
+        g.setColor(Color.BLACK);
+        g.setFont(HUD_FONT);
+        g.drawString(hudText, 12, 22);
+    }
+
+    private String timeScaleLabel() {
+        double scale = TIME_SCALES[timeScale];
+        if (scale == 1) return "";
+        return (scale == SimulationThread.UNBOUNDED) ? " — Speed: max" : " — Speed: x" + (int) scale;
+    }
+
+    /** Replay status and a timeline of the window, with the playback position filled in. */
+    private void drawRewindUI(Graphics g) {
+        long oldest = instantReplay.oldestTick(), newest = instantReplay.newestTick();
+        int behindTenths = (int) ((newest - rewindTick) * GameEngine.TICK_MS / 100);
+        int key = behindTenths * 8 + rewindRate * 2 + (rewindPaused ? 1 : 0);
+        if (rewindText == null || key != rewindTextKey) {
+            rewindText = String.format("Replay -%.1f s  x%s%s — R: live  \u2190/\u2192: 1 s  ,/.: tick  Space: pause  S: slow",
+                    behindTenths / 10.0, REWIND_RATES[rewindRate], rewindPaused ? " paused" : "");
+            rewindTextKey = key;
+        }
         g.setColor(Color.BLACK);
-        g.setFont(new Font("Comic Sans MS", Font.BOLD, 14));
-        g.drawString("Gold: " + gold + " — Selected Lane: " + (selectedLane + 1), 12, 22);
+        g.setFont(HUD_FONT);
+        g.drawString(rewindText, 12, 20);
+
+        int width = getWidth() - 24;
+        int filled = (newest > oldest) ? (int) (width * (rewindTick - oldest) / (newest - oldest)) : width;
+        g.setColor(TIMELINE_COLOR);
+        g.fillRect(12, HUD_HEIGHT - 5, width, 3);
+        g.setColor(TIMELINE_FILL);
+        g.fillRect(12, HUD_HEIGHT - 5, filled, 3);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,41 @@
+/**
+ * Seedable random source for everything random in a match (SplitMix64).
+ * Unlike java.util.Random its whole state is one readable long, so a match
+ * can be reproduced from its seed and the state can be saved and restored.
+ */
+public final class GameRandom {
+    private long state;
+
+    public GameRandom(long seed) {
+        this.state = seed;
+    }
+
+    public long nextLong() {
+        long z = (state += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /** Uniform in [0, bound) via multiply-shift; the bias is far below anything a match can notice. */
+    public int nextInt(int bound) {
+        return (int) (((nextLong() >>> 32) * bound) >>> 32);
+    }
+
+    /** Uniform in [origin, bound). */
+    public int nextInt(int origin, int bound) {
+        return origin + nextInt(bound - origin);
+    }
+
+    public boolean nextBoolean() {
+        return nextLong() < 0;
+    }
+
+    /** An independent stream seeded from this one. */
+    public GameRandom split() {
+        return new GameRandom(nextLong());
+    }
+
+    public long getState() { return state; }
+    public void setState(long state) { this.state = state; }
+}
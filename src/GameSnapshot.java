@@ -0,0 +1,124 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The complete state of a running match in a compact binary form: units,
+ * bases, economy, the pending spawn and gold events and the RNG state.
+ * Restoring puts an engine back exactly where the snapshot was taken, so
+ * stepping on with the same commands gives the same match. That makes it
+ * usable both for save/load and for rollback or "what-if" branches.
+ *
+ * A snapshot keeps its buffer; capturing into an existing one again only
+ * allocates when the match has outgrown it. Not thread-safe.
+ *
+ * Layout (big-endian): magic "LSN1", version byte, laneCount int, seed
+ * long, then the engine state: tick long, elapsedMs int, gameOver byte, RNG
+ * state long, gold, goldPerSecond, goldUpgradeCount, upgradeCost and
+ * goldGenerationFrames ints, player and enemy base (x, y, width, height, hp
+ * ints), the planned enemy and elite spawns (type ordinal and lane ints, -1
+ * when unplanned), the event heap (size int, next sequence long, then per event time
+ * long, sequence long, kind int, payload int), and per lane the row count
+ * followed by the x, prevX, y, hp, cooldown and spawn tick int columns and
+ * the team and type byte columns. Last come the unit definitions the match
+ * runs on, as a binary unit table (see UnitDefinitions), and its length int.
+ */
+public final class GameSnapshot {
+    private static final int MAGIC = 0x4C534E31; // "LSN1"
+    private static final int VERSION = 4;
+    private static final int HEADER_BYTES = 4 + 1 + 4 + 8;
+    private static final int LANE_COUNT_OFFSET = 5;
+    private static final int SEED_OFFSET = 9;
+    private static final int TICK_OFFSET = HEADER_BYTES;
+
+    private ByteBuffer buffer;
+    private UnitDefinitions definitions;
+
+    private GameSnapshot(ByteBuffer buffer, UnitDefinitions definitions) {
+        this.buffer = buffer;
+        this.definitions = definitions;
+    }
+
+    public GameSnapshot() {
+        this(ByteBuffer.allocate(0), null);
+    }
+
+    public static GameSnapshot capture(GameEngine engine) {
+        GameSnapshot snapshot = new GameSnapshot();
+        snapshot.captureFrom(engine);
+        return snapshot;
+    }
+
+    /** Overwrites this snapshot with the engine's current state. */
+    public void captureFrom(GameEngine engine) {
+        definitions = engine.definitions();
+        byte[] table = definitions.encoded();
+        int needed = HEADER_BYTES + engine.snapshotSize() + table.length + 4;
+        if (buffer.capacity() < needed) {
+            buffer = ByteBuffer.allocate(needed + needed / 2);
+        }
+        buffer.clear();
+        buffer.putInt(MAGIC);
+        buffer.put((byte) VERSION);
+        buffer.putInt(engine.getLaneCount());
+        buffer.putLong(engine.getSeed());
+        engine.writeState(buffer);
+        buffer.put(table);
+        buffer.putInt(table.length);
+        buffer.flip();
+    }
+
+    /**
+     * Puts the engine back into the captured state, unit definitions
+     * included. The engine must have the same lane count; a recording it
+     * carries is not rewound.
+     */
+    public void restoreInto(GameEngine engine) {
+        if (engine.getLaneCount() != getLaneCount()) {
+            throw new IllegalArgumentException("Snapshot has " + getLaneCount()
+                    + " lanes, engine has " + engine.getLaneCount());
+        }
+        buffer.position(HEADER_BYTES);
+        engine.readState(buffer);
+        engine.useDefinitions(definitions);
+    }
+
+    /** A new engine with the snapshot's seed and lanes, restored to its state. */
+    public GameEngine newEngine(UnitFactory factory) {
+        GameEngine engine = new GameEngine(factory, getLaneCount(), getSeed());
+        restoreInto(engine);
+        return engine;
+    }
+
+    public int getLaneCount() { return buffer.getInt(LANE_COUNT_OFFSET); }
+    public long getSeed() { return buffer.getLong(SEED_OFFSET); }
+    public long getTick() { return buffer.getLong(TICK_OFFSET); }
+
+    /** Encoded size in bytes. */
+    public int size() { return buffer.limit(); }
+
+    // --- Files ---
+
+    public void write(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        byte[] bytes = new byte[buffer.limit()];
+        buffer.get(0, bytes);
+        Files.write(file, bytes);
+    }
+
+    public static GameSnapshot read(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a snapshot file: " + file);
+        }
+        int version = buffer.get(4) & 0xFF;
+        if (version != VERSION) throw new IOException("Unsupported snapshot version " + version);
+        int tableBytes = buffer.getInt(buffer.limit() - 4);
+        int tableStart = buffer.limit() - 4 - tableBytes;
+        if (tableBytes < 0 || tableStart < HEADER_BYTES) throw new IOException("Truncated snapshot: " + file);
+        UnitDefinitions definitions = UnitDefinitions.fromBinary(buffer.slice(tableStart, tableBytes), file.toString());
+        return new GameSnapshot(buffer, definitions);
+    }
+}
@@ -0,0 +1,81 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Plays matches on the {@link GameEngine} without a window and reports how
+ * fast the simulation runs. With a log file, every match is written to it
+ * as a combat log for CombatLogAnalyzer.
+ *
+ * Usage: java HeadlessRunner [matches] [maxTicks] [combatLogFile]
+ */
+public class HeadlessRunner {
+    static final UnitType[] BUILD_ORDER = {
+        UnitType.UNIT2, UnitType.UNIT3, UnitType.UNIT4, UnitType.UNIT5
+    };
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+
+        int matches = (args.length > 0) ? Integer.parseInt(args[0]) : 100;
+        long maxTicks = (args.length > 1) ? Long.parseLong(args[1]) : 100_000;
+
+        int wins = 0;
+        long totalTicks = 0;
+        long start = System.nanoTime();
+        UnitFactory factory = new UnitFactory(false);
+        GameEngine engine = new GameEngine(factory, GameEngine.DEFAULT_LANE_COUNT, 0);
+        CombatLog log = (args.length > 2) ? new CombatLog(Paths.get(args[2])) : null;
+        engine.setCombatLog(log);
+
+        for (int m = 0; m < matches; m++) {
+            engine.reset(m);
+            playMatch(engine, maxTicks);
+            totalTicks += engine.getTick();
+            if (engine.playerWon()) wins++;
+        }
+        if (log != null) {
+            engine.setCombatLog(null);
+            log.close();
+            System.out.printf("combat log: %s (%d records dropped)%n", args[2], log.dropped());
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("matches=%d wins=%d avgTicks=%.0f%n",
+                matches, wins, totalTicks / (double) matches);
+        System.out.printf("%.0f ticks/s (%.3f s total)%n", totalTicks / seconds, seconds);
+    }
+
+    /** Runs one match with a simple scripted player until it ends or hits maxTicks. */
+    static void playMatch(GameEngine engine, long maxTicks) {
+        playMatch(engine, BUILD_ORDER, maxTicks);
+    }
+
+    /**
+     * Plays the build order into the lane with the most enemies until the
+     * match ends or hits maxTicks, and returns the gold spent on units.
+     */
+    static long playMatch(GameEngine engine, UnitType[] buildOrder, long maxTicks) {
+        long spent = 0;
+        int next = 0;
+        while (!engine.isGameOver() && engine.getTick() < maxTicks) {
+            UnitType type = buildOrder[next];
+            int cost = engine.cost(type);
+            if (engine.getGold() >= cost && engine.spawnPlayer(type, busiestLane(engine))) {
+                spent += cost;
+                next = (next + 1) % buildOrder.length;
+            }
+            engine.step();
+        }
+        return spent;
+    }
+
+    static int busiestLane(GameEngine engine) {
+        int best = 0;
+        for (int lane = 1; lane < engine.getLaneCount(); lane++) {
+            if (engine.lane(lane).count(Unit.Team.ENEMY) > engine.lane(best).count(Unit.Team.ENEMY)) {
+                best = lane;
+            }
+        }
+        return best;
+    }
+}
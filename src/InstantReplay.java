@@ -0,0 +1,388 @@
+/**
+ * Rolling record of the last stretch of a match, so a collapse can be
+ * rewound and watched again. After every tick the simulation thread appends
+ * a frame: gold, base HP and position, and per lane the rows' x, cooldown,
+ * movement and HP as zigzag varint differences from the same row one tick
+ * earlier, plus y, team and type for rows that now hold a different unit.
+ * Fields are written column by column so the encoder runs branch-light
+ * loops: x and cooldown change on most rows and take a byte each, movement
+ * and HP rarely change and take a bit each plus a value where they did.
+ * Every keyframeTicks ticks the frame is written against nothing instead,
+ * so any tick is rebuilt from at most that many frames.
+ *
+ * Frames go into one byte ring of fixed size, allocated up front. The
+ * oldest keyframe and the deltas after it are dropped together once the
+ * ring wraps over them or the window holds windowTicks, so memory never
+ * grows. With many units the window gets shorter instead.
+ *
+ * {@link #record} belongs to the simulation thread; {@link #seek},
+ * {@link #clear} and the window queries may only be called while it is
+ * stopped.
+ */
+public final class InstantReplay {
+    public static final int DEFAULT_WINDOW_TICKS = 30_000 / GameEngine.TICK_MS;
+    public static final int DEFAULT_KEYFRAME_TICKS = 30;
+    public static final int DEFAULT_CAPACITY_BYTES = 32 << 20;
+
+    private static final int MAX_VARINT_BYTES = 5;
+    // Four values, two bitmap bits, and index, y and team/type for a new unit
+    private static final int MAX_ROW_BYTES = 6 * MAX_VARINT_BYTES + 2;
+
+    private final int keyframeTicks;
+    private final byte[] ring;
+    private final int mask;
+    private long writePos;
+    private long readPos;
+    private byte[] frame = new byte[1 << 16];   // the frame being encoded, before it goes into the ring
+    private int[] moves = new int[64];              // x - prevX per row, now and one tick earlier
+    private int[] previousMoves = new int[64];
+
+    // Frame n starts at frameStart[n % length]; frames [firstFrame, endFrame)
+    // hold the consecutive ticks firstTick .. lastTick.
+    private final long[] frameStart;
+    private final boolean[] keyframe;
+    private final UnitTable[] frameTable;
+    private long firstFrame, endFrame;
+    private long firstTick, lastTick = -1;
+    private int sinceKeyframe;
+    private int generation;
+
+    // The last recorded tick, which the next frame is encoded against.
+    private final RenderState previous;
+
+    // Reading side: the state as of decodedFrame.
+    private final RenderState decoded;
+    private long decodedFrame = -1;
+    private int decodedGeneration = -1;
+
+    public InstantReplay(int laneCount) {
+        this(laneCount, DEFAULT_WINDOW_TICKS, DEFAULT_KEYFRAME_TICKS, DEFAULT_CAPACITY_BYTES);
+    }
+
+    /** @param capacityBytes ring size, rounded up to a power of two */
+    public InstantReplay(int laneCount, int windowTicks, int keyframeTicks, int capacityBytes) {
+        this.keyframeTicks = keyframeTicks;
+        int bytes = Integer.highestOneBit(Math.max(1024, capacityBytes - 1)) << 1;
+        ring = new byte[bytes];
+        mask = bytes - 1;
+        // Room for a whole extra group, so dropping one still leaves windowTicks.
+        frameStart = new long[windowTicks + keyframeTicks];
+        keyframe = new boolean[frameStart.length];
+        frameTable = new UnitTable[frameStart.length];
+        previous = new RenderState(laneCount);
+        decoded = new RenderState(laneCount);
+    }
+
+    /** Forgets every frame; the next record starts over with a keyframe. */
+    public void clear() {
+        firstFrame = endFrame = 0;
+        lastTick = -1;
+        generation++;
+    }
+
+    public boolean isEmpty() {
+        return firstFrame == endFrame;
+    }
+
+    /** First tick that can be rebuilt, or -1 when empty. */
+    public long oldestTick() {
+        return isEmpty() ? -1 : firstTick;
+    }
+
+    /** Last recorded tick, or -1 when empty. */
+    public long newestTick() {
+        return isEmpty() ? -1 : lastTick;
+    }
+
+    /** Bytes the current window takes up in the ring. */
+    public long bytesUsed() {
+        return isEmpty() ? 0 : writePos - frameStart[slot(firstFrame)];
+    }
+
+    public int capacityBytes() {
+        return ring.length;
+    }
+
+    // --- Recording (simulation thread) ---
+
+    /**
+     * Appends the engine's current tick. A tick that does not follow the
+     * last one (a reset or restored match) starts a new window.
+     */
+    public void record(GameEngine engine) {
+        long tick = engine.getTick();
+        if (tick != lastTick + 1) clear();
+        if (isEmpty()) {
+            firstTick = tick;
+            sinceKeyframe = keyframeTicks;
+        }
+        if (endFrame - firstFrame == frameStart.length) dropOldestGroup();
+
+        boolean key = sinceKeyframe >= keyframeTicks || isEmpty();
+        int length = encode(engine, key);
+        if (length > ring.length) {
+            // A single frame bigger than the ring: nothing fits.
+            clear();
+            return;
+        }
+        int at = (int) writePos & mask;
+        int head = Math.min(length, ring.length - at);
+        System.arraycopy(frame, 0, ring, at, head);
+        System.arraycopy(frame, head, ring, 0, length - head);
+
+        int slot = slot(endFrame++);
+        frameStart[slot] = writePos;
+        keyframe[slot] = key;
+        frameTable[slot] = engine.getTable();
+        writePos += length;
+        lastTick = tick;
+        sinceKeyframe = key ? 1 : sinceKeyframe + 1;
+
+        while (!isEmpty() && frameStart[slot(firstFrame)] < writePos - ring.length) {
+            dropOldestGroup();
+        }
+        if (isEmpty()) lastTick = -1;
+    }
+
+    /** Drops the oldest frame and every delta that depended on it, up to the next keyframe. */
+    private void dropOldestGroup() {
+        do {
+            firstFrame++;
+            firstTick++;
+        } while (firstFrame < endFrame && !keyframe[slot(firstFrame)]);
+    }
+
+    /**
+     * Encodes the engine's state into frame against previous, then makes
+     * previous a copy of it. Returns the length.
+     */
+    private int encode(GameEngine engine, boolean key) {
+        RenderState p = previous;
+        int need = 5 * MAX_VARINT_BYTES;
+        for (int l = 0; l < p.lanes.length; l++) {
+            need += 2 * MAX_VARINT_BYTES + engine.lane(l).size * MAX_ROW_BYTES;
+        }
+        if (frame.length < need) frame = new byte[Math.max(need, frame.length * 2)];
+        byte[] out = frame;
+
+        Base playerBase = engine.getPlayerBase(), enemyBase = engine.getEnemyBase();
+        int pos = putDelta(out, 0, engine.getGold(), key ? 0 : p.gold);
+        pos = putDelta(out, pos, playerBase.hp, key ? 0 : p.playerBase.hp);
+        pos = putDelta(out, pos, playerBase.x, key ? 0 : p.playerBase.x);
+        pos = putDelta(out, pos, enemyBase.hp, key ? 0 : p.enemyBase.hp);
+        pos = putDelta(out, pos, enemyBase.x, key ? 0 : p.enemyBase.x);
+        p.gold = engine.getGold();
+        p.playerBase.copyFrom(playerBase);
+        p.enemyBase.copyFrom(enemyBase);
+
+        for (int l = 0; l < p.lanes.length; l++) {
+            LaneStore lane = engine.lane(l);
+            LaneStore before = p.lanes[l];
+            int n = lane.size;
+            int shared = key ? 0 : Math.min(n, before.size);
+            pos = putVarint(out, pos, n);
+            pos = putIdentities(out, pos, lane, before, shared);
+
+            if (moves.length < n) {
+                moves = new int[Math.max(n, moves.length * 2)];
+                previousMoves = new int[moves.length];
+            }
+            for (int i = 0; i < n; i++) moves[i] = lane.x[i] - lane.prevX[i];
+            for (int i = 0; i < shared; i++) previousMoves[i] = before.x[i] - before.prevX[i];
+
+            pos = putDense(out, pos, lane.x, before.x, shared, n);
+            pos = putDense(out, pos, lane.cd, before.cd, shared, n);
+            pos = putSparse(out, pos, moves, previousMoves, shared, n);
+            pos = putSparse(out, pos, lane.hp, before.hp, shared, n);
+            before.copyFrom(lane);
+        }
+        return pos;
+    }
+
+    /**
+     * The shared rows now holding a different unit (index gaps), then y and
+     * team/type for those and for every row past the shared ones.
+     */
+    private static int putIdentities(byte[] out, int pos, LaneStore lane, LaneStore before, int shared) {
+        int changed = 0;
+        for (int i = 0; i < shared; i++) {
+            if (lane.y[i] != before.y[i] || lane.type[i] != before.type[i] || lane.team[i] != before.team[i]) {
+                changed++;
+            }
+        }
+        pos = putVarint(out, pos, changed);
+        int last = 0;
+        for (int i = 0; i < shared && changed > 0; i++) {
+            if (lane.y[i] != before.y[i] || lane.type[i] != before.type[i] || lane.team[i] != before.team[i]) {
+                pos = putVarint(out, pos, i - last);
+                pos = putIdentity(out, pos, lane, i);
+                last = i;
+                changed--;
+            }
+        }
+        for (int i = shared; i < lane.size; i++) {
+            pos = putIdentity(out, pos, lane, i);
+        }
+        return pos;
+    }
+
+    private static int putIdentity(byte[] out, int pos, LaneStore lane, int i) {
+        pos = putVarint(out, pos, lane.y[i]);
+        out[pos] = (byte) (lane.team[i] | lane.type[i] << 1);
+        return pos + 1;
+    }
+
+    /** One delta per row; rows past shared are taken against zero. */
+    private static int putDense(byte[] out, int pos, int[] now, int[] before, int shared, int n) {
+        for (int i = 0; i < shared; i++) pos = putDelta(out, pos, now[i], before[i]);
+        for (int i = shared; i < n; i++) pos = putDelta(out, pos, now[i], 0);
+        return pos;
+    }
+
+    /** A bitmap of the rows that changed, eight to a byte, then their deltas. */
+    private static int putSparse(byte[] out, int pos, int[] now, int[] before, int shared, int n) {
+        for (int g = 0; g < n; g += 8) {
+            int bits = 0;
+            for (int i = g, end = Math.min(n, g + 8); i < end; i++) {
+                int base = (i < shared) ? before[i] : 0;
+                bits |= ((now[i] != base) ? 1 : 0) << (i - g);
+            }
+            out[pos++] = (byte) bits;
+        }
+        for (int i = 0; i < shared; i++) {
+            if (now[i] != before[i]) pos = putDelta(out, pos, now[i], before[i]);
+        }
+        for (int i = shared; i < n; i++) {
+            if (now[i] != 0) pos = putDelta(out, pos, now[i], 0);
+        }
+        return pos;
+    }
+
+    private static int putDelta(byte[] out, int pos, int value, int base) {
+        int d = value - base;
+        return putVarint(out, pos, (d << 1) ^ (d >> 31));
+    }
+
+    private static int putVarint(byte[] out, int pos, int v) {
+        while ((v & ~0x7F) != 0) {
+            out[pos++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out[pos++] = (byte) v;
+        return pos;
+    }
+
+    // --- Playback (simulation stopped) ---
+
+    /**
+     * Rebuilds the given tick, clamped into the window, and returns it; null
+     * when nothing is recorded. The returned state is reused by the next
+     * seek. Stepping forward a tick at a time decodes one frame per call.
+     */
+    public RenderState seek(long tick) {
+        if (isEmpty()) return null;
+        long target = firstFrame + (Math.max(firstTick, Math.min(lastTick, tick)) - firstTick);
+
+        long key = target;
+        while (!keyframe[slot(key)]) key--;
+        long from = key;
+        if (decodedGeneration == generation && decodedFrame >= key && decodedFrame <= target) {
+            from = decodedFrame + 1;
+        }
+        for (long f = from; f <= target; f++) {
+            decode(f);
+        }
+        decodedFrame = target;
+        decodedGeneration = generation;
+        decoded.tick = firstTick + (target - firstFrame);
+        return decoded;
+    }
+
+    private void decode(long frame) {
+        int slot = slot(frame);
+        boolean key = keyframe[slot];
+        readPos = frameStart[slot];
+        RenderState s = decoded;
+        s.table = frameTable[slot];
+        if (key) {
+            // Only x and HP of the bases are recorded; the rest never changes in a match.
+            s.playerBase.copyFrom(previous.playerBase);
+            s.enemyBase.copyFrom(previous.enemyBase);
+            s.gameOver = s.playerWon = false;
+        }
+        s.gold = getDelta(key ? 0 : s.gold);
+        s.playerBase.hp = getDelta(key ? 0 : s.playerBase.hp);
+        s.playerBase.x = getDelta(key ? 0 : s.playerBase.x);
+        s.enemyBase.hp = getDelta(key ? 0 : s.enemyBase.hp);
+        s.enemyBase.x = getDelta(key ? 0 : s.enemyBase.x);
+
+        for (LaneStore lane : s.lanes) {
+            int n = getVarint();
+            int shared = key ? 0 : Math.min(n, lane.size);
+            if (moves.length < n) {
+                moves = new int[Math.max(n, moves.length * 2)];
+                previousMoves = new int[moves.length];
+            }
+            for (int i = 0; i < shared; i++) moves[i] = lane.x[i] - lane.prevX[i];
+            lane.resize(n);
+
+            int changed = getVarint();
+            for (int k = 0, i = 0; k < changed; k++) {
+                i += getVarint();
+                getIdentity(lane, i);
+            }
+            for (int i = shared; i < n; i++) {
+                getIdentity(lane, i);
+            }
+            getDense(lane.x, shared, n);
+            getDense(lane.cd, shared, n);
+            getSparse(moves, shared, n);
+            getSparse(lane.hp, shared, n);
+            for (int i = 0; i < n; i++) lane.prevX[i] = lane.x[i] - moves[i];
+            lane.rowsWritten();
+        }
+    }
+
+    private void getIdentity(LaneStore lane, int i) {
+        lane.y[i] = getVarint();
+        int teamAndType = get();
+        lane.team[i] = (byte) (teamAndType & 1);
+        lane.type[i] = (byte) (teamAndType >>> 1);
+    }
+
+    private void getDense(int[] values, int shared, int n) {
+        for (int i = 0; i < shared; i++) values[i] = getDelta(values[i]);
+        for (int i = shared; i < n; i++) values[i] = getDelta(0);
+    }
+
+    private void getSparse(int[] values, int shared, int n) {
+        long bitmap = readPos;
+        readPos += (n + 7) >> 3;
+        for (int i = 0; i < n; i++) {
+            if (i >= shared) values[i] = 0;
+            if ((ring[(int) (bitmap + (i >> 3)) & mask] & (1 << (i & 7))) != 0) values[i] = getDelta(values[i]);
+        }
+    }
+
+    private int get() {
+        return ring[(int) readPos++ & mask] & 0xFF;
+    }
+
+    private int getDelta(int base) {
+        int z = getVarint();
+        return base + ((z >>> 1) ^ -(z & 1));
+    }
+
+    private int getVarint() {
+        int v = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = get();
+            v |= (b & 0x7F) << shift;
+            if (b < 0x80) return v;
+        }
+    }
+
+    private int slot(long frame) {
+        return (int) (frame % frameStart.length);
+    }
+}
@@ -0,0 +1,135 @@
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Records a crowded three-lane LaneStress scenario into an InstantReplay
+ * and reports what that costs: time per tick against the tick period and
+ * against the step itself, bytes per tick and how many seconds fit in the ring. Then rebuilds
+ * sampled ticks, in random order and front to back, and fails (exit code 1)
+ * if any differs from the engine state at that tick or if recording
+ * allocated once warm.
+ *
+ * Usage: java InstantReplayCheck [unitsPerSide] [ticks]
+ */
+public class InstantReplayCheck {
+    private static final int WARMUP_TICKS = 200;
+    private static final int ALLOCATION_TICKS = 100;
+    private static final int SAMPLE_EVERY = 37;
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        int units = (args.length > 0) ? Integer.parseInt(args[0]) : 2_000;
+        int ticks = (args.length > 1) ? Integer.parseInt(args[1]) : 2_000;
+
+        GameEngine engine = LaneStress.buildScenario(units, 3);
+        InstantReplay replay = new InstantReplay(engine.getLaneCount());
+        for (int t = 0; t < WARMUP_TICKS; t++) {
+            engine.step();
+            replay.record(engine);
+        }
+
+        Map<Long, RenderState> samples = new HashMap<>();
+        long stepNanos = 0, recordNanos = 0, rows = 0;
+        long bytesBefore = replay.bytesUsed();
+        for (int t = 0; t < ticks && !engine.isGameOver(); t++) {
+            long start = System.nanoTime();
+            engine.step();
+            long stepped = System.nanoTime();
+            replay.record(engine);
+            recordNanos += System.nanoTime() - stepped;
+            stepNanos += stepped - start;
+            for (int lane = 0; lane < engine.getLaneCount(); lane++) rows += engine.lane(lane).size();
+
+            if (engine.getTick() % SAMPLE_EVERY == 0) {
+                RenderState copy = new RenderState(engine.getLaneCount());
+                copy.copyFrom(engine, 0);
+                samples.put(engine.getTick(), copy);
+            }
+        }
+        long allocated = recordAllocation(engine, replay);
+
+        long oldest = replay.oldestTick(), newest = replay.newestTick();
+        long window = newest - oldest + 1;
+        System.out.printf("%d units per side in 3 lanes, %d ticks, %.0f rows/tick on average%n",
+                units, ticks, rows / (double) ticks);
+        System.out.printf("step   %8.1f us/tick%n", stepNanos / 1e3 / ticks);
+        System.out.printf("record %8.1f us/tick (%.2f%% of the %d ms tick, %.0f%% of the step), %d bytes allocated%n",
+                recordNanos / 1e3 / ticks, 100.0 * recordNanos / ticks / SimulationThread.TICK_NANOS,
+                GameEngine.TICK_MS, 100.0 * recordNanos / stepNanos, allocated);
+        System.out.printf("window %d ticks (%.1f s) in %.1f of %d MB, %.0f bytes/tick, %.2f bytes/row%n",
+                window, window * GameEngine.TICK_MS / 1000.0, replay.bytesUsed() / 1e6, replay.capacityBytes() >> 20,
+                replay.bytesUsed() / (double) window, replay.bytesUsed() / (double) window / (rows / (double) ticks));
+        if (replay.bytesUsed() < bytesBefore) {
+            System.out.println("(the ring wrapped; the window is bounded by memory)");
+        }
+
+        int checked = 0, mismatches = 0;
+        Random random = new Random(1);
+        Long[] sampled = samples.keySet().toArray(new Long[0]);
+        for (int i = 0; i < sampled.length * 2; i++) {
+            long tick = sampled[random.nextInt(sampled.length)];
+            if (tick < oldest) continue;
+            checked++;
+            if (!same(samples.get(tick), replay.seek(tick))) mismatches++;
+        }
+        long start = System.nanoTime();
+        for (long tick = oldest; tick <= newest; tick++) {
+            RenderState decoded = replay.seek(tick);
+            RenderState expected = samples.get(tick);
+            if (expected != null) {
+                checked++;
+                if (!same(expected, decoded)) mismatches++;
+            }
+        }
+        System.out.printf("playback %.1f us/tick front to back%n", (System.nanoTime() - start) / 1e3 / window);
+        System.out.printf("%d sampled ticks rebuilt, %d differ%n", checked, mismatches);
+
+        if (mismatches > 0 || checked == 0) {
+            System.out.println("FAIL: rebuilt ticks differ from the recorded ones");
+            System.exit(1);
+        }
+        if (allocated > 0) {
+            System.out.println("FAIL: recording allocates");
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+
+    /** Bytes allocated by record calls alone over a batch of ticks, net of the probe. */
+    private static long recordAllocation(GameEngine engine, InstantReplay replay) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long probe = threads.getCurrentThreadAllocatedBytes();
+        long overhead = threads.getCurrentThreadAllocatedBytes() - probe;
+        long allocated = 0;
+        for (int t = 0; t < ALLOCATION_TICKS && !engine.isGameOver(); t++) {
+            engine.step();
+            long before = threads.getCurrentThreadAllocatedBytes();
+            replay.record(engine);
+            allocated += threads.getCurrentThreadAllocatedBytes() - before - overhead;
+        }
+        return Math.max(0, allocated);
+    }
+
+    private static boolean same(RenderState expected, RenderState actual) {
+        if (expected.tick != actual.tick || expected.gold != actual.gold
+                || expected.playerBase.hp != actual.playerBase.hp || expected.enemyBase.hp != actual.enemyBase.hp
+                || expected.playerBase.x != actual.playerBase.x || expected.enemyBase.x != actual.enemyBase.x) {
+            return false;
+        }
+        for (int lane = 0; lane < expected.lanes.length; lane++) {
+            LaneStore a = expected.lanes[lane], b = actual.lanes[lane];
+            if (a.size() != b.size()) return false;
+            for (int i = 0; i < a.size(); i++) {
+                if (a.x(i) != b.x(i) || a.prevX(i) != b.prevX(i) || a.y(i) != b.y(i) || a.hp(i) != b.hp(i)
+                        || a.cooldown(i) != b.cooldown(i) || a.team(i) != b.team(i) || a.type(i) != b.type(i)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
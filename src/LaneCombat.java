@@ -0,0 +1,300 @@
+/**
+ * Engagement pass for one side of a lane, working directly on the
+ * {@link LaneStore} arrays.
+ *
+ * Units only move along x, so the opponents are sorted by x once per pass
+ * and each actor only tests the opponents inside its reach window instead of
+ * the whole lane. Hit order matches the plain nested loop kept in
+ * {@link #actReference}: an actor hits the first engaged opponent in row
+ * order, and every engaged opponent that is off cooldown hits back.
+ *
+ * The team fronts kept by LaneStore bound where contact is possible. Only
+ * opponents within reach of the acting front are sorted, actors whose reach
+ * ends short of the opposing front skip the search, and the base is only
+ * tested once the acting front can reach it. Units far behind the line then
+ * cost a cooldown tick and a move, whatever the lane population.
+ *
+ * Both passes report each write to x, hp or cooldown to the lane's state
+ * hash while it is hashing.
+ */
+final class LaneCombat {
+    private UnitTable table;
+    private final int laneIndex;
+    private CombatLog log;          // null unless the engine is logging
+    private int maxWidth;
+    private int maxStep;
+
+    // Opponents sorted by x, packed as (x << 32) | row index.
+    private long[] sorted = new long[64];
+    private long[] scratch = new long[64];
+
+    LaneCombat(UnitTable table, int laneIndex) {
+        this.laneIndex = laneIndex;
+        setTable(table);
+    }
+
+    void setLog(CombatLog log) {
+        this.log = log;
+    }
+
+    /** Switches to a new table, after a reload, and re-derives the sweep bounds. */
+    void setTable(UnitTable table) {
+        this.table = table;
+        maxWidth = table.maxWidth();
+        int step = 0;
+        for (int s : table.step) step = Math.max(step, Math.abs(s));
+        maxStep = step;
+    }
+
+    /**
+     * Runs cooldown, combat, base attack and movement for every unit of one
+     * team. The base is only read; the damage dealt to it is returned.
+     */
+    int act(LaneStore lane, byte actingTeam, Base opposingBase) {
+        byte opposingTeam = (byte) (1 - actingTeam);
+        boolean players = actingTeam == LaneStore.PLAYER;
+        int actingFront = lane.front(actingTeam);
+        int opposingFront = lane.front(opposingTeam);
+
+        // Nothing of the acting team can reach past these bounds this tick.
+        int contact = maxWidth + 2 * maxStep;
+        int count = players
+                ? sortByX(lane, opposingTeam, Integer.MIN_VALUE, saturatingAdd(actingFront, contact))
+                : sortByX(lane, opposingTeam, saturatingAdd(actingFront, -contact), Integer.MAX_VALUE);
+        boolean baseInReach = players
+                ? saturatingAdd(actingFront, maxWidth + maxStep) > opposingBase.x
+                : saturatingAdd(actingFront, -maxStep) < opposingBase.x + opposingBase.width;
+
+        int[] x = lane.x, y = lane.y, hp = lane.hp, cd = lane.cd;
+        byte[] team = lane.team, type = lane.type;
+        boolean hashing = lane.hashing;
+        int baseDamage = 0;
+        int newFront = actingFront;
+
+        for (int i = 0; i < lane.size; i++) {
+            if (team[i] != actingTeam) continue;
+            if (cd[i] > 0) {
+                cd[i]--;
+                if (hashing) lane.rehashField(i, LaneStore.HASH_CD, cd[i] + 1, cd[i]);
+            }
+
+            int t = type[i];
+            int step = table.step[t];
+            int w = table.width[t];
+            int h = table.height[t];
+            int top = y[i] - h;
+            int reach = Math.abs(step) + maxStep;
+            int lo = x[i] - reach - maxWidth;
+            int hi = x[i] + w + reach;
+
+            // Players face the smallest enemy x, enemies the largest player x.
+            boolean mayTouch = players ? hi > opposingFront : lo <= opposingFront;
+            int target = -1;
+            for (int k = mayTouch ? lowerBound(count, lo) : count; k < count; k++) {
+                long key = sorted[k];
+                if ((int) (key >> 32) >= hi) break;
+
+                int j = (int) key;
+                if (hp[j] <= 0) continue;
+                int o = type[j];
+                int oh = table.height[o];
+                if (!willIntersect(x[i], top, w, h, step, x[j], y[j] - oh, table.width[o], oh, table.step[o])) continue;
+
+                if (target < 0 || j < target) target = j;
+                if (cd[j] == 0) {
+                    hp[i] -= table.damage[o];
+                    cd[j] = table.attackInterval[o];
+                    if (hashing) rehashHit(lane, j, i);
+                    if (log != null) logHit(lane, j, i);
+                }
+            }
+
+            boolean engaged = target >= 0;
+            if (engaged) {
+                if (cd[i] == 0) {
+                    hp[target] -= table.damage[t];
+                    cd[i] = table.attackInterval[t];
+                    if (hashing) rehashHit(lane, i, target);
+                    if (log != null) logHit(lane, i, target);
+                }
+            } else if (baseInReach && willIntersect(x[i], top, w, h, step, opposingBase)) {
+                engaged = true;
+                if (cd[i] == 0) {
+                    baseDamage += table.damage[t];
+                    cd[i] = table.attackInterval[t];
+                    if (hashing) lane.rehashField(i, LaneStore.HASH_CD, 0, cd[i]);
+                    if (log != null) log.baseDamage(laneIndex, t, table.damage[t], actingTeam, x[i]);
+                }
+            }
+
+            if (!engaged) {
+                x[i] += step;
+                if (hashing) lane.rehashField(i, LaneStore.HASH_X, x[i] - step, x[i]);
+                newFront = players ? Math.max(newFront, x[i]) : Math.min(newFront, x[i]);
+            }
+        }
+        lane.advanceFront(actingTeam, newFront);
+        return baseDamage;
+    }
+
+    /** Reference pass: every unit scans every opposing row. O(players x enemies). */
+    int actReference(LaneStore lane, byte actingTeam, Base opposingBase) {
+        int[] x = lane.x, y = lane.y, hp = lane.hp, cd = lane.cd;
+        byte[] team = lane.team, type = lane.type;
+        boolean hashing = lane.hashing;
+        int baseDamage = 0;
+
+        for (int i = 0; i < lane.size; i++) {
+            if (team[i] != actingTeam) continue;
+            if (cd[i] > 0) {
+                cd[i]--;
+                if (hashing) lane.rehashField(i, LaneStore.HASH_CD, cd[i] + 1, cd[i]);
+            }
+
+            int t = type[i];
+            int step = table.step[t];
+            int w = table.width[t];
+            int h = table.height[t];
+            int top = y[i] - h;
+            boolean engaged = false;
+
+            // Check combat with the other team
+            for (int j = 0; j < lane.size; j++) {
+                if (team[j] == actingTeam || hp[j] <= 0) continue;
+
+                int o = type[j];
+                int oh = table.height[o];
+                if (willIntersect(x[i], top, w, h, step, x[j], y[j] - oh, table.width[o], oh, table.step[o])) {
+                    engaged = true;
+                    if (cd[i] == 0) {
+                        hp[j] -= table.damage[t];
+                        cd[i] = table.attackInterval[t];
+                        if (hashing) rehashHit(lane, i, j);
+                        if (log != null) logHit(lane, i, j);
+                    }
+                    if (cd[j] == 0) {
+                        hp[i] -= table.damage[o];
+                        cd[j] = table.attackInterval[o];
+                        if (hashing) rehashHit(lane, j, i);
+                        if (log != null) logHit(lane, j, i);
+                    }
+                }
+            }
+
+            // Check attack on the opposing base
+            if (!engaged && willIntersect(x[i], top, w, h, step, opposingBase)) {
+                engaged = true;
+                if (cd[i] == 0) {
+                    baseDamage += table.damage[t];
+                    cd[i] = table.attackInterval[t];
+                    if (hashing) lane.rehashField(i, LaneStore.HASH_CD, 0, cd[i]);
+                    if (log != null) log.baseDamage(laneIndex, t, table.damage[t], actingTeam, x[i]);
+                }
+            }
+
+            // Move if not engaged
+            if (!engaged) {
+                x[i] += step;
+                if (hashing) lane.rehashField(i, LaneStore.HASH_X, x[i] - step, x[i]);
+            }
+        }
+        return baseDamage;
+    }
+
+    /** Hashes a hit of row attacker, off cooldown before it, on row target. */
+    private void rehashHit(LaneStore lane, int attacker, int target) {
+        int t = lane.type[attacker];
+        lane.rehashField(target, LaneStore.HASH_HP, lane.hp[target] + table.damage[t], lane.hp[target]);
+        lane.rehashField(attacker, LaneStore.HASH_CD, 0, lane.cd[attacker]);
+    }
+
+    /** Logs a hit of row attacker on row target, after the damage was applied. */
+    private void logHit(LaneStore lane, int attacker, int target) {
+        int t = lane.type[attacker];
+        log.hit(laneIndex, t, lane.type[target], table.damage[t], lane.team[attacker],
+                lane.hp[target], lane.x[target]);
+    }
+
+    /** Gathers and sorts the rows of sortTeam with minX <= x < maxX. */
+    private int sortByX(LaneStore lane, byte sortTeam, int minX, int maxX) {
+        if (sorted.length < lane.size) {
+            sorted = new long[Math.max(lane.size, sorted.length * 2)];
+            scratch = new long[sorted.length];
+        }
+        int n = 0;
+        for (int i = 0; i < lane.size; i++) {
+            int ux = lane.x[i];
+            if (lane.team[i] == sortTeam && ux >= minX && ux < maxX) {
+                sorted[n++] = ((long) ux << 32) | i;
+            }
+        }
+        sort(0, n);
+        return n;
+    }
+
+    /** a + b, clamped instead of wrapping when a is an empty team's MIN/MAX front. */
+    private static int saturatingAdd(int a, int b) {
+        long sum = (long) a + b;
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, sum));
+    }
+
+    /**
+     * Merge sort on the packed keys using a reusable scratch buffer, so the
+     * pass never allocates. Runs that are already in order are skipped, which
+     * keeps the common nearly-sorted lane close to linear.
+     */
+    private void sort(int from, int to) {
+        if (to - from <= 32) {
+            for (int i = from + 1; i < to; i++) {
+                long key = sorted[i];
+                int j = i - 1;
+                while (j >= from && sorted[j] > key) {
+                    sorted[j + 1] = sorted[j];
+                    j--;
+                }
+                sorted[j + 1] = key;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        sort(from, mid);
+        sort(mid, to);
+        if (sorted[mid - 1] <= sorted[mid]) return;
+
+        System.arraycopy(sorted, from, scratch, from, to - from);
+        int i = from, j = mid, k = from;
+        while (i < mid && j < to) {
+            sorted[k++] = (scratch[i] <= scratch[j]) ? scratch[i++] : scratch[j++];
+        }
+        while (i < mid) sorted[k++] = scratch[i++];
+        while (j < to) sorted[k++] = scratch[j++];
+    }
+
+    /** First position whose x is >= the given x. */
+    private int lowerBound(int count, int x) {
+        long key = (long) x << 32;
+        int lo = 0, hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // --- Overlap now or after both sides take their step ---
+
+    static boolean willIntersect(int ax, int ay, int aw, int ah, int stepA,
+                                 int bx, int by, int bw, int bh, int stepB) {
+        if (!overlaps(ay, ah, by, bh)) return false;
+        return overlaps(ax, aw, bx, bw) || overlaps(ax + stepA, aw, bx + stepB, bw);
+    }
+
+    static boolean willIntersect(int ax, int ay, int aw, int ah, int stepA, Base base) {
+        return willIntersect(ax, ay, aw, ah, stepA, base.x, base.y, base.width, base.height, 0);
+    }
+
+    private static boolean overlaps(int a, int aLen, int b, int bLen) {
+        return a < b + bLen && b < a + aLen;
+    }
+}
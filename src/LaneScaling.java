@@ -0,0 +1,51 @@
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Benchmark for the parallel lane update: a large map with many crowded
+ * lanes, timed serially and then on ForkJoinPools of 1..N workers. Every
+ * parallel run is checked against the serial end state.
+ * Usage: java LaneScaling [lanes] [unitsPerSidePerLane] [ticks]
+ */
+public class LaneScaling {
+    private static final int WARMUP_TICKS = 50;
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        int lanes = (args.length > 0) ? Integer.parseInt(args[0]) : 32;
+        int units = (args.length > 1) ? Integer.parseInt(args[1]) : 2_000;
+        int ticks = (args.length > 2) ? Integer.parseInt(args[2]) : 100;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        System.out.printf("%d lanes x %d units per side, %d ticks, %d cores%n", lanes, units, ticks, cores);
+
+        // Let the JIT compile the lane loops before anything is timed.
+        LaneStress.run(LaneStress.buildScenario(units, lanes), WARMUP_TICKS);
+
+        GameEngine serial = LaneStress.buildScenario(units, lanes);
+        long serialNs = LaneStress.run(serial, ticks);
+        System.out.printf("serial:     %8.2f ms/tick%n", serialNs / 1e6 / ticks);
+
+        for (int workers = 1; workers <= cores; workers *= 2) {
+            runParallel(workers, lanes, units, ticks, serial, serialNs);
+            if (workers < cores && workers * 2 > cores) {
+                runParallel(cores, lanes, units, ticks, serial, serialNs);
+            }
+        }
+    }
+
+    private static void runParallel(int workers, int lanes, int units, int ticks,
+                                    GameEngine serial, long serialNs) {
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        try {
+            GameEngine parallel = LaneStress.buildScenario(units, lanes);
+            parallel.setLanePool(pool);
+            long ns = LaneStress.run(parallel, ticks);
+            System.out.printf("%2d workers: %8.2f ms/tick  %5.2fx  %s%n",
+                    workers, ns / 1e6 / ticks, serialNs / (double) ns,
+                    LaneStress.sameState(serial, parallel) ? "match" : "MISMATCH");
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
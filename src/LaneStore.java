@@ -0,0 +1,336 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Structure-of-arrays storage for every unit in one lane. Each unit is a row
+ * across parallel primitive arrays (x, y, hp, cooldown, team, type), so the
+ * combat loops walk contiguous memory instead of separate Unit objects.
+ * Dead rows are dropped with an O(1) swap-remove, which means row order is
+ * not spawn order once something has died.
+ *
+ * The store also tracks each team's front: the largest x of any player row
+ * and the smallest x of any enemy row. Adds and moves only push a front
+ * forward; removing the row that held it marks the fronts for a rescan on
+ * the next read. A front may lag behind a unit that stepped back, which only
+ * makes the checks that use it more conservative.
+ *
+ * While hashing is on, the store keeps a Zobrist-style hash of its rows:
+ * the XOR of one key per row and field (x, hp, cooldown, and y/team/type
+ * together), each key a bijective mix of row, field and value. Every write
+ * swaps the field's old key for its new one, so the hash stays current at a
+ * constant cost per write and never needs a rescan. Row order is part of
+ * it, since it decides hit order. prevX and the spawn tick are not.
+ */
+public final class LaneStore {
+    public static final byte PLAYER = (byte) Unit.Team.PLAYER.ordinal();
+    public static final byte ENEMY = (byte) Unit.Team.ENEMY.ordinal();
+    private static final int BYTES_PER_ROW = 6 * 4 + 2;    // six int columns, team and type bytes
+
+    // Hashed fields
+    static final int HASH_X = 0;
+    static final int HASH_HP = 1;
+    static final int HASH_CD = 2;
+    static final int HASH_IDENTITY = 3;
+
+    int[] x, y, hp, cd;
+    int[] prevX;                // x before the last tick, for interpolated drawing
+    int[] born;                 // tick the unit spawned on, for the combat log
+    byte[] team, type;
+    int size;
+    private final int[] teamCount = new int[2];
+    private final int[] front = {Integer.MIN_VALUE, Integer.MAX_VALUE};
+    private boolean frontStale;
+    boolean hashing;
+    private long hash;
+
+    public LaneStore() {
+        this(64);
+    }
+
+    public LaneStore(int capacity) {
+        x = new int[capacity];
+        prevX = new int[capacity];
+        y = new int[capacity];
+        hp = new int[capacity];
+        cd = new int[capacity];
+        born = new int[capacity];
+        team = new byte[capacity];
+        type = new byte[capacity];
+    }
+
+    /** Copies a freshly created unit into a new row and returns its index. */
+    public int add(Unit unit) {
+        return add(unit.getType(), unit.getTeam(), unit.x, unit.y, unit.hp());
+    }
+
+    public int add(UnitType unitType, Unit.Team unitTeam, int ux, int uy, int uhp) {
+        if (size == x.length) grow();
+        int i = size++;
+        x[i] = ux;
+        prevX[i] = ux;
+        y[i] = uy;
+        hp[i] = uhp;
+        cd[i] = 0;
+        born[i] = 0;
+        team[i] = (byte) unitTeam.ordinal();
+        type[i] = (byte) unitType.ordinal();
+        teamCount[team[i]]++;
+        advanceFront(team[i], ux);
+        if (hashing) hash ^= rowKey(i);
+        return i;
+    }
+
+    /** Moves the last row into slot i. */
+    public void swapRemove(int i) {
+        teamCount[team[i]]--;
+        if (x[i] == front[team[i]]) frontStale = true;
+        int last = --size;
+        if (hashing) {
+            hash ^= rowKey(i);
+            if (i != last) hash ^= rowKey(last) ^ movedRowKey(i, last);
+        }
+        if (i != last) {
+            x[i] = x[last];
+            prevX[i] = prevX[last];
+            y[i] = y[last];
+            hp[i] = hp[last];
+            cd[i] = cd[last];
+            born[i] = born[last];
+            team[i] = team[last];
+            type[i] = type[last];
+        }
+    }
+
+    public void removeDead() {
+        int i = 0;
+        while (i < size) {
+            if (hp[i] <= 0) swapRemove(i);
+            else i++;
+        }
+    }
+
+    public void clear() {
+        size = 0;
+        hash = 0;
+        teamCount[PLAYER] = 0;
+        teamCount[ENEMY] = 0;
+        front[PLAYER] = Integer.MIN_VALUE;
+        front[ENEMY] = Integer.MAX_VALUE;
+        frontStale = false;
+    }
+
+    /**
+     * Leading x of a team: the largest player x or the smallest enemy x, or
+     * MIN_VALUE / MAX_VALUE when the team has no rows.
+     */
+    public int front(byte t) {
+        if (frontStale) rescanFronts();
+        return front[t];
+    }
+
+    /** Pushes a team's front out to x if x is further forward. */
+    void advanceFront(byte t, int ux) {
+        if (t == PLAYER) {
+            if (ux > front[PLAYER]) front[PLAYER] = ux;
+        } else if (ux < front[ENEMY]) {
+            front[ENEMY] = ux;
+        }
+    }
+
+    private void rescanFronts() {
+        front[PLAYER] = Integer.MIN_VALUE;
+        front[ENEMY] = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            advanceFront(team[i], x[i]);
+        }
+        frontStale = false;
+    }
+
+    /** Remembers current positions as the start of the coming tick. */
+    public void savePositions() {
+        System.arraycopy(x, 0, prevX, 0, size);
+    }
+
+    /** Makes this store an exact copy of other, growing only when needed. */
+    public void copyFrom(LaneStore other) {
+        if (x.length < other.size) {
+            x = new int[other.x.length];
+            prevX = new int[other.x.length];
+            y = new int[other.x.length];
+            hp = new int[other.x.length];
+            cd = new int[other.x.length];
+            born = new int[other.x.length];
+            team = new byte[other.x.length];
+            type = new byte[other.x.length];
+        }
+        int n = other.size;
+        System.arraycopy(other.x, 0, x, 0, n);
+        System.arraycopy(other.prevX, 0, prevX, 0, n);
+        System.arraycopy(other.y, 0, y, 0, n);
+        System.arraycopy(other.hp, 0, hp, 0, n);
+        System.arraycopy(other.cd, 0, cd, 0, n);
+        System.arraycopy(other.born, 0, born, 0, n);
+        System.arraycopy(other.team, 0, team, 0, n);
+        System.arraycopy(other.type, 0, type, 0, n);
+        size = n;
+        teamCount[PLAYER] = other.teamCount[PLAYER];
+        teamCount[ENEMY] = other.teamCount[ENEMY];
+        front[PLAYER] = other.front[PLAYER];
+        front[ENEMY] = other.front[ENEMY];
+        frontStale = other.frontStale;
+        if (hashing) hash = other.hashing ? other.hash : computeHash();
+    }
+
+    // --- Snapshots ---
+
+    /** Bytes writeTo needs for the current rows. */
+    int snapshotSize() {
+        return 4 + size * BYTES_PER_ROW;
+    }
+
+    /** Row count, then each column in turn. Row order is kept exactly. */
+    void writeTo(ByteBuffer out) {
+        int n = size;
+        out.putInt(n);
+        for (int i = 0; i < n; i++) out.putInt(x[i]);
+        for (int i = 0; i < n; i++) out.putInt(prevX[i]);
+        for (int i = 0; i < n; i++) out.putInt(y[i]);
+        for (int i = 0; i < n; i++) out.putInt(hp[i]);
+        for (int i = 0; i < n; i++) out.putInt(cd[i]);
+        for (int i = 0; i < n; i++) out.putInt(born[i]);
+        out.put(team, 0, n);
+        out.put(type, 0, n);
+    }
+
+    void readFrom(ByteBuffer in) {
+        int n = in.getInt();
+        clear();
+        while (x.length < n) grow();
+        for (int i = 0; i < n; i++) x[i] = in.getInt();
+        for (int i = 0; i < n; i++) prevX[i] = in.getInt();
+        for (int i = 0; i < n; i++) y[i] = in.getInt();
+        for (int i = 0; i < n; i++) hp[i] = in.getInt();
+        for (int i = 0; i < n; i++) cd[i] = in.getInt();
+        for (int i = 0; i < n; i++) born[i] = in.getInt();
+        in.get(team, 0, n);
+        in.get(type, 0, n);
+        for (int i = 0; i < n; i++) teamCount[team[i]]++;
+        size = n;
+        frontStale = true;
+        if (hashing) hash = computeHash();
+    }
+
+    /**
+     * Sets the row count for a caller that writes the columns itself,
+     * growing the arrays as needed and keeping rows already there. Call
+     * rowsWritten once the rows are filled.
+     */
+    void resize(int n) {
+        while (x.length < n) grow();
+        size = n;
+    }
+
+    /** Re-derives the team counts and fronts after rows were written directly. */
+    void rowsWritten() {
+        teamCount[PLAYER] = teamCount[ENEMY] = 0;
+        for (int i = 0; i < size; i++) teamCount[team[i]]++;
+        frontStale = true;
+        if (hashing) hash = computeHash();
+    }
+
+    // --- State hash ---
+
+    /** Starts or stops keeping the hash current; starting computes it once. */
+    void setHashing(boolean on) {
+        hashing = on;
+        if (on) hash = computeHash();
+    }
+
+    /** The rows' hash: kept current while hashing, computed from scratch otherwise. */
+    long hash() {
+        return hashing ? hash : computeHash();
+    }
+
+    /** The hash recomputed from every row, to check the kept one against. */
+    long computeHash() {
+        long h = 0;
+        for (int i = 0; i < size; i++) h ^= rowKey(i);
+        return h;
+    }
+
+    /** The first row and field, in row order, that differs from other's; null if none. */
+    String firstDifference(LaneStore other) {
+        int n = Math.min(size, other.size);
+        for (int i = 0; i < n; i++) {
+            if (x[i] != other.x[i]) return "row " + i + " x " + x[i] + " vs " + other.x[i];
+            if (hp[i] != other.hp[i]) return "row " + i + " hp " + hp[i] + " vs " + other.hp[i];
+            if (cd[i] != other.cd[i]) return "row " + i + " cooldown " + cd[i] + " vs " + other.cd[i];
+            if (y[i] != other.y[i]) return "row " + i + " y " + y[i] + " vs " + other.y[i];
+            if (team[i] != other.team[i] || type[i] != other.type[i]) {
+                return "row " + i + " unit " + UnitType.values()[type[i]] + "/" + team[i]
+                        + " vs " + UnitType.values()[other.type[i]] + "/" + other.team[i];
+            }
+        }
+        return (size != other.size) ? "size " + size + " vs " + other.size : null;
+    }
+
+    /** Swaps a field's key for its new value; callers write the column, then call this. */
+    void rehashField(int row, int field, int oldValue, int newValue) {
+        hash ^= key(row, field, oldValue) ^ key(row, field, newValue);
+    }
+
+    private long rowKey(int i) {
+        return key(i, HASH_X, x[i]) ^ key(i, HASH_HP, hp[i]) ^ key(i, HASH_CD, cd[i])
+                ^ key(i, HASH_IDENTITY, identity(i));
+    }
+
+    /** Key of row from's fields as they will be once moved to row to. */
+    private long movedRowKey(int to, int from) {
+        return key(to, HASH_X, x[from]) ^ key(to, HASH_HP, hp[from]) ^ key(to, HASH_CD, cd[from])
+                ^ key(to, HASH_IDENTITY, identity(from));
+    }
+
+    private int identity(int i) {
+        return y[i] << 8 | team[i] << 7 | type[i];
+    }
+
+    /**
+     * Row, field and value packed without overlap, then the SplitMix64
+     * finalizer. Both steps are one-to-one, so no two cells share a key.
+     */
+    static long key(int row, int field, int value) {
+        return mix((long) row << 34 | (long) field << 32 | (value & 0xFFFFFFFFL));
+    }
+
+    /** SplitMix64's finalizer: a one-to-one mix of all 64 bits. */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private void grow() {
+        int capacity = Math.max(16, x.length * 2);
+        x = Arrays.copyOf(x, capacity);
+        prevX = Arrays.copyOf(prevX, capacity);
+        y = Arrays.copyOf(y, capacity);
+        hp = Arrays.copyOf(hp, capacity);
+        cd = Arrays.copyOf(cd, capacity);
+        born = Arrays.copyOf(born, capacity);
+        team = Arrays.copyOf(team, capacity);
+        type = Arrays.copyOf(type, capacity);
+    }
+
+    // --- Row access ---
+
+    public int size() { return size; }
+    public int count(Unit.Team t) { return teamCount[t.ordinal()]; }
+    public int x(int i) { return x[i]; }
+    public int prevX(int i) { return prevX[i]; }
+    public int y(int i) { return y[i]; }
+    public int hp(int i) { return hp[i]; }
+    public int cooldown(int i) { return cd[i]; }
+    public int born(int i) { return born[i]; }
+    public byte team(int i) { return team[i]; }
+    public int type(int i) { return type[i]; }
+}
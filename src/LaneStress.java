@@ -0,0 +1,95 @@
+import java.util.Random;
+
+/**
+ * Stress scenario for lane combat: fills one lane with a large army per side
+ * and times the reference nested loop against the sweep-based pass, then
+ * checks that both left the lane in the same state.
+ * Usage: java LaneStress [unitsPerSide] [ticks]
+ */
+public class LaneStress {
+    private static final int SPACING = 12;
+    // Above this the quadratic reference takes minutes per tick.
+    private static final int MAX_REFERENCE_UNITS = 20_000;
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        int units = (args.length > 0) ? Integer.parseInt(args[0]) : 10_000;
+        int ticks = (args.length > 1) ? Integer.parseInt(args[1]) : 5;
+
+        GameEngine sweep = buildScenario(units);
+        sweep.setSweepCombat(true);
+        long sweepNs = run(sweep, ticks);
+
+        System.out.printf("%d units per side, %d ticks%n", units, ticks);
+        if (units > MAX_REFERENCE_UNITS) {
+            System.out.printf("sweep:     %8.2f ms/tick (reference skipped)%n", sweepNs / 1e6 / ticks);
+            return;
+        }
+
+        GameEngine reference = buildScenario(units);
+        reference.setSweepCombat(false);
+        long refNs = run(reference, ticks);
+
+        System.out.printf("reference: %8.2f ms/tick%n", refNs / 1e6 / ticks);
+        System.out.printf("sweep:     %8.2f ms/tick%n", sweepNs / 1e6 / ticks);
+        System.out.printf("speedup:   %8.1fx%n", refNs / (double) sweepNs);
+        System.out.println(sameState(reference, sweep) ? "states match" : "STATES DIFFER");
+    }
+
+    static GameEngine buildScenario(int units) {
+        return buildScenario(units, 1);
+    }
+
+    /** Players on the left half, enemies on the right, meeting in the middle of every lane. */
+    static GameEngine buildScenario(int units, int laneCount) {
+        UnitFactory factory = new UnitFactory(false);
+        GameEngine engine = new GameEngine(factory, laneCount);
+        int width = units * SPACING * 2 + 400;
+        engine.setFieldWidth(width);
+
+        Random random = new Random(42);
+        UnitType[] playerTypes = {UnitType.UNIT1, UnitType.UNIT2, UnitType.UNIT3, UnitType.UNIT4, UnitType.UNIT5};
+        UnitType[] enemyTypes = {UnitType.ENEMY1, UnitType.ENEMY2, UnitType.ELITE1, UnitType.ELITE2};
+
+        for (int lane = 0; lane < laneCount; lane++) {
+            int y = engine.laneY(lane);
+            for (int i = 0; i < units; i++) {
+                UnitType p = playerTypes[random.nextInt(playerTypes.length)];
+                UnitType e = enemyTypes[random.nextInt(enemyTypes.length)];
+                int px = 100 + random.nextInt(units * SPACING);
+                int ex = width / 2 + random.nextInt(units * SPACING);
+                engine.lane(lane).add(factory.create(p, Unit.Team.PLAYER, px, y + random.nextInt(30), lane));
+                engine.lane(lane).add(factory.create(e, Unit.Team.ENEMY, ex, y + random.nextInt(30), lane));
+            }
+        }
+        return engine;
+    }
+
+    static long run(GameEngine engine, int ticks) {
+        long start = System.nanoTime();
+        for (int t = 0; t < ticks; t++) {
+            engine.updateAllLanes();
+        }
+        return System.nanoTime() - start;
+    }
+
+    static boolean sameState(GameEngine a, GameEngine b) {
+        for (int lane = 0; lane < a.getLaneCount(); lane++) {
+            if (!sameRows(a.lane(lane), b.lane(lane))) return false;
+        }
+        return a.getPlayerBase().hp == b.getPlayerBase().hp
+                && a.getEnemyBase().hp == b.getEnemyBase().hp;
+    }
+
+    private static boolean sameRows(LaneStore a, LaneStore b) {
+        if (a.size() != b.size()) return false;
+        for (int i = 0; i < a.size(); i++) {
+            if (a.x(i) != b.x(i) || a.y(i) != b.y(i) || a.hp(i) != b.hp(i)
+                    || a.cooldown(i) != b.cooldown(i) || a.type(i) != b.type(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
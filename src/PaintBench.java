@@ -0,0 +1,121 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * Measures unit paint cost offscreen on the same crowd of units:
+ * rescaling the full-size PNG on every draw, blitting pre-scaled copies
+ * from SpriteStore one unit at a time, and the batched atlas UnitRenderer.
+ * Also compares redrawing the lanes and bases every frame with blitting the
+ * cached BackgroundLayer.
+ * Usage: java PaintBench [imagesDir] [units] [frames]
+ */
+public class PaintBench {
+    // Indexed by UnitType ordinal.
+    private static final String[] FILES = {
+        "unit1.png", "unit2.png", "unit3.png", "unit4.png", "unit5.png",
+        "enemy1.png", "enemy2.png", "elite1.png", "elite2.png"
+    };
+
+    public static void main(String[] args) {
+        String dir = (args.length > 0) ? args[0] : "src/images";
+        int units = (args.length > 1) ? Integer.parseInt(args[1]) : 2_000;
+        int frames = (args.length > 2) ? Integer.parseInt(args[2]) : 200;
+
+        UnitFactory factory = new UnitFactory(false);
+        UnitTable table = new UnitTable(factory, GameEngine.SPEED_SCALE);
+        Image[] rawSprites = new Image[FILES.length];
+        Image[] scaledSprites = new Image[FILES.length];
+        for (int t = 0; t < FILES.length; t++) {
+            String path = dir + "/" + FILES[t];
+            rawSprites[t] = SpriteStore.get(path);
+            scaledSprites[t] = SpriteStore.get(path, table.width[t], table.height[t]);
+            if (rawSprites[t] == null) {
+                System.out.println("Missing sprite " + path);
+                return;
+            }
+        }
+        UnitRenderer renderer = new UnitRenderer(SpriteAtlas.build(scaledSprites));
+
+        // One lane store holding the whole crowd, drawn with each approach.
+        Random random = new Random(7);
+        UnitType[] types = UnitType.values();
+        LaneStore crowd = new LaneStore();
+        for (int i = 0; i < units; i++) {
+            UnitType type = types[random.nextInt(types.length)];
+            crowd.add(type, factory.team(type), random.nextInt(960), 60 + random.nextInt(420), table.hp[type.ordinal()]);
+        }
+        LaneStore[] lanes = {crowd};
+
+        GameEngine engine = new GameEngine(factory);
+        int[] laneY = new int[engine.getLaneCount()];
+        for (int i = 0; i < laneY.length; i++) laneY[i] = engine.laneY(i);
+        BackgroundLayer layer = new BackgroundLayer(laneY, GameEngine.LANE_HEIGHT);
+        Base player = engine.getPlayerBase(), enemy = engine.getEnemyBase();
+
+        BufferedImage canvas = new BufferedImage(GameEngine.FIELD_WIDTH, 520, BufferedImage.TYPE_INT_RGB);
+        for (int pass = 0; pass < 2; pass++) {   // first pass warms up
+            long rescaleNs = time(canvas, frames, g -> drawEach(g, crowd, rawSprites, table, true));
+            long blitNs = time(canvas, frames, g -> drawEach(g, crowd, scaledSprites, table, false));
+            long atlasNs = time(canvas, frames, g -> renderer.draw(g, lanes, table, 1.0));
+            long lanesNs = time(canvas, frames, g -> drawBackground(g, laneY, player, enemy, canvas.getWidth()));
+            long layerNs = time(canvas, frames, g -> layer.draw(g, canvas.getWidth(), canvas.getHeight(), 1,
+                    player, Color.BLUE, enemy, Color.RED));
+            if (pass == 1) {
+                System.out.printf("%d units, %d frames%n", units, frames);
+                System.out.printf("rescale per draw: %7.2f ms/frame%n", rescaleNs / 1e6 / frames);
+                System.out.printf("pre-scaled blit:  %7.2f ms/frame%n", blitNs / 1e6 / frames);
+                System.out.printf("atlas, batched:   %7.2f ms/frame%n", atlasNs / 1e6 / frames);
+                System.out.printf("background drawn: %7.2f ms/frame%n", lanesNs / 1e6 / frames);
+                System.out.printf("background layer: %7.2f ms/frame (%d rebuilds)%n",
+                        layerNs / 1e6 / frames, layer.getRebuildCount());
+            }
+        }
+    }
+
+    /** The old per-unit path: sprite, then HP bar outline and fill. */
+    private static void drawEach(Graphics g, LaneStore lane, Image[] sprites, UnitTable table, boolean rescale) {
+        for (int i = 0; i < lane.size(); i++) {
+            int t = lane.type(i);
+            int x = lane.x(i), w = table.width[t], h = table.height[t], top = lane.y(i) - h;
+            if (rescale) g.drawImage(sprites[t], x, top, w, h, null);
+            else g.drawImage(sprites[t], x, top, null);
+
+            g.setColor(Color.BLACK);
+            g.drawRect(x, top - 7, w, 6);
+            int hpw = (int) Math.max(0, Math.round((lane.hp(i) / (double) table.hp[t]) * w));
+            g.setColor(new Color(0, 180, 60));
+            g.fillRect(x + 1, top - 6, Math.max(0, hpw - 2), 5);
+        }
+    }
+
+    /** The old immediate-mode lanes and bases, allocating its colours as it did. */
+    private static void drawBackground(Graphics g, int[] laneY, Base player, Base enemy, int width) {
+        for (int y : laneY) {
+            g.setColor(new Color(255, 240, 200));
+            g.fillRect(0, y - GameEngine.LANE_HEIGHT / 2, width, GameEngine.LANE_HEIGHT);
+            g.setColor(new Color(210, 170, 80));
+            g.drawLine(0, y, width, y);
+        }
+        g.setColor(new Color(255, 220, 0, 90));
+        g.fillRect(0, laneY[1] - GameEngine.LANE_HEIGHT / 2, width, GameEngine.LANE_HEIGHT);
+        player.drawBody(g, Color.BLUE);
+        enemy.drawBody(g, Color.RED);
+    }
+
+    private interface Frame {
+        void draw(Graphics g);
+    }
+
+    private static long time(BufferedImage canvas, int frames, Frame frame) {
+        long start = System.nanoTime();
+        for (int f = 0; f < frames; f++) {
+            Graphics g = canvas.createGraphics();
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+            frame.draw(g);
+            g.dispose();
+        }
+        return System.nanoTime() - start;
+    }
+}
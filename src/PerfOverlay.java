@@ -0,0 +1,70 @@
+import java.awt.*;
+
+/**
+ * Text overlay with the TickProfiler numbers, drawn in the top-right corner
+ * of the panel while toggled on. It formats fresh strings every frame, which
+ * is fine for a debugging view that is off by default.
+ */
+public final class PerfOverlay {
+    private static final Font FONT = new Font(Font.MONOSPACED, Font.PLAIN, 11);
+    private static final Color BACKGROUND = new Color(0, 0, 0, 170);
+    private static final int WIDTH = 330;
+    private static final int LINE_HEIGHT = 13;
+    private static final int MARGIN = 6;
+
+    private final TickProfiler profiler;
+
+    public PerfOverlay(TickProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /** Area the overlay covers in a panel of the given width. */
+    public Rectangle bounds(int panelWidth) {
+        int lines = 7 + TickProfiler.PHASE_NAMES.length + profiler.lanes.length;
+        return new Rectangle(panelWidth - WIDTH - MARGIN, MARGIN, WIDTH, lines * LINE_HEIGHT + 2 * MARGIN);
+    }
+
+    public void draw(Graphics g, int panelWidth) {
+        Rectangle area = bounds(panelWidth);
+        g.setColor(BACKGROUND);
+        g.fillRect(area.x, area.y, area.width, area.height);
+        g.setFont(FONT);
+        g.setColor(Color.WHITE);
+
+        int x = area.x + MARGIN;
+        int y = area.y + MARGIN + LINE_HEIGHT - 2;
+        g.drawString(String.format("%-12s %8s %8s %8s", "(us)", "p50", "p99", "max"), x, y);
+        y = line(g, "tick", profiler.tick, x, y);
+        for (int i = 0; i < TickProfiler.PHASE_NAMES.length; i++) {
+            y = line(g, "  " + TickProfiler.PHASE_NAMES[i], profiler.phases[i], x, y);
+            if (i != TickProfiler.PHASE_LANES) continue;
+            for (int lane = 0; lane < profiler.lanes.length; lane++) {
+                y = line(g, "    lane " + (lane + 1), profiler.lanes[lane], x, y);
+            }
+        }
+        y = line(g, "paint", profiler.paint, x, y);
+
+        LatencyHistogram alloc = profiler.allocatedPerTick;
+        y += LINE_HEIGHT;
+        g.drawString(String.format("%-12s %8d %8d %8d", "alloc B/tick",
+                alloc.percentile(0.5), alloc.percentile(0.99), alloc.max()), x, y);
+
+        StringBuilder units = new StringBuilder("units/lane  ");
+        for (int count : profiler.unitsPerLane) {
+            units.append(' ').append(count);
+        }
+        y += LINE_HEIGHT;
+        g.drawString(units.toString(), x, y);
+        y += LINE_HEIGHT;
+        g.drawString(String.format("ticks %d, dropped frames %d", profiler.tick.count(), profiler.droppedFrames), x, y);
+        y += LINE_HEIGHT;
+        g.drawString(String.format("start to first frame %.1f ms", profiler.startLatencyNanos / 1e6), x, y);
+    }
+
+    private static int line(Graphics g, String label, LatencyHistogram h, int x, int y) {
+        y += LINE_HEIGHT;
+        g.drawString(String.format("%-12s %8.1f %8.1f %8.1f", label,
+                h.percentile(0.5) / 1e3, h.percentile(0.99) / 1e3, h.max() / 1e3), x, y);
+        return y;
+    }
+}
@@ -0,0 +1,45 @@
+/**
+ * Copy of everything the panel needs to draw one simulation tick. The
+ * simulation thread fills one of these after each batch of ticks and hands
+ * it over through {@link SimulationThread}; the EDT only ever reads its own.
+ */
+public final class RenderState {
+    public long tick = -1;
+    public long tickNanos;          // System.nanoTime() when the tick finished
+
+    public int gold;
+    public int upgradeCost;
+    public boolean upgradeMaxed;
+    public boolean canUpgrade;
+    public boolean gameOver;
+    public boolean playerWon;
+    public UnitTable table;         // the stats the lanes were simulated with
+
+    public final Base playerBase = new Base(0, 0, 0, 0, 0);
+    public final Base enemyBase = new Base(0, 0, 0, 0, 0);
+    public final LaneStore[] lanes;
+
+    public RenderState(int laneCount) {
+        lanes = new LaneStore[laneCount];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new LaneStore();
+        }
+    }
+
+    void copyFrom(GameEngine engine, long nanos) {
+        tick = engine.getTick();
+        tickNanos = nanos;
+        gold = engine.getGold();
+        upgradeCost = engine.getUpgradeCost();
+        upgradeMaxed = engine.isUpgradeMaxed();
+        canUpgrade = engine.canUpgrade();
+        gameOver = engine.isGameOver();
+        playerWon = engine.playerWon();
+        table = engine.getTable();
+        playerBase.copyFrom(engine.getPlayerBase());
+        enemyBase.copyFrom(engine.getEnemyBase());
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i].copyFrom(engine.lane(i));
+        }
+    }
+}
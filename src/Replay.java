@@ -0,0 +1,139 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Everything needed to re-run a match exactly: the seed, the lane count,
+ * the player and AI opponent commands with the tick each was applied on, and
+ * the unit definitions the match started with and every hot reload after.
+ *
+ * File layout (big-endian): magic "LRP1", version byte, seed long,
+ * laneCount int, endTick long, command count int, then per command the tick
+ * delta from the previous command as a varint, the type byte and a payload
+ * (unit type byte + lane varint for SPAWN and ENEMY_PLAN, width varint for
+ * FIELD_WIDTH, byte length varint + binary unit table for DEFINITIONS).
+ */
+public final class Replay {
+    private static final int MAGIC = 0x4C525031; // "LRP1"
+    private static final int VERSION = 2;
+
+    public final long seed;
+    public final int laneCount;
+    long endTick;
+    private final List<GameCommand> commands = new ArrayList<>();
+
+    public Replay(long seed, int laneCount) {
+        this.seed = seed;
+        this.laneCount = laneCount;
+    }
+
+    void record(GameCommand command) {
+        commands.add(command);
+    }
+
+    public long getEndTick() { return endTick; }
+    public List<GameCommand> getCommands() { return commands; }
+
+    // --- File format ---
+
+    public void write(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(seed);
+            out.writeInt(laneCount);
+            out.writeLong(endTick);
+            out.writeInt(commands.size());
+
+            long previousTick = 0;
+            for (GameCommand c : commands) {
+                writeVarint(out, c.tick - previousTick);
+                previousTick = c.tick;
+                out.writeByte(c.type.ordinal());
+                switch (c.type) {
+                    case SPAWN:
+                    case ENEMY_PLAN:
+                        out.writeByte(c.unitType.ordinal());
+                        writeVarint(out, c.value);
+                        break;
+                    case FIELD_WIDTH:
+                        writeVarint(out, c.value);
+                        break;
+                    case DEFINITIONS:
+                        byte[] table = c.definitions.encoded();
+                        writeVarint(out, table.length);
+                        out.write(table);
+                        break;
+                    case UPGRADE:
+                        break;
+                }
+            }
+        }
+    }
+
+    public static Replay read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) throw new IOException("Not a replay file: " + file);
+            int version = in.readUnsignedByte();
+            if (version != VERSION) throw new IOException("Unsupported replay version " + version);
+
+            Replay replay = new Replay(in.readLong(), in.readInt());
+            replay.endTick = in.readLong();
+            int count = in.readInt();
+
+            GameCommand.Type[] types = GameCommand.Type.values();
+            UnitType[] unitTypes = UnitType.values();
+            long tick = 0;
+            for (int i = 0; i < count; i++) {
+                tick += readVarint(in);
+                GameCommand.Type type = types[in.readUnsignedByte()];
+                switch (type) {
+                    case SPAWN:
+                        UnitType unitType = unitTypes[in.readUnsignedByte()];
+                        replay.record(GameCommand.spawn(tick, unitType, (int) readVarint(in)));
+                        break;
+                    case FIELD_WIDTH:
+                        replay.record(GameCommand.fieldWidth(tick, (int) readVarint(in)));
+                        break;
+                    case UPGRADE:
+                        replay.record(GameCommand.upgrade(tick));
+                        break;
+                    case ENEMY_PLAN:
+                        UnitType planned = unitTypes[in.readUnsignedByte()];
+                        replay.record(GameCommand.enemyPlan(tick, planned, (int) readVarint(in)));
+                        break;
+                    case DEFINITIONS:
+                        byte[] table = new byte[(int) readVarint(in)];
+                        in.readFully(table);
+                        UnitDefinitions definitions = UnitDefinitions.fromBinary(ByteBuffer.wrap(table), file.toString());
+                        replay.record(GameCommand.definitions(tick, definitions));
+                        break;
+                }
+            }
+            return replay;
+        }
+    }
+
+    private static void writeVarint(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarint(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,65 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Re-runs a recorded match headlessly. The engine is rebuilt from the seed
+ * and the recorded commands are fed back on their ticks, so the match
+ * replays exactly and as fast as the CPU allows. The recorded unit
+ * definitions are swapped into the factory as they come up.
+ * Usage: java ReplayPlayer file.lrp [seekTick]
+ */
+public class ReplayPlayer {
+    private final Replay replay;
+    private final UnitFactory factory;
+
+    public ReplayPlayer(Replay replay, UnitFactory factory) {
+        this.replay = replay;
+        this.factory = factory;
+    }
+
+    /** Fresh engine advanced to exactly the given tick (or the end of the match). */
+    public GameEngine seek(long targetTick) {
+        GameEngine engine = new GameEngine(factory, replay.laneCount, replay.seed);
+        List<GameCommand> commands = replay.getCommands();
+        int next = 0;
+
+        while (engine.getTick() < targetTick && !engine.isGameOver()) {
+            long upcoming = engine.getTick() + 1;
+            while (next < commands.size() && commands.get(next).tick <= upcoming) {
+                engine.apply(commands.get(next++));
+            }
+            engine.step();
+        }
+        return engine;
+    }
+
+    public GameEngine playToEnd() {
+        return seek(replay.getEndTick());
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        if (args.length < 1) {
+            System.out.println("Usage: java ReplayPlayer file.lrp [seekTick]");
+            return;
+        }
+
+        Path file = Paths.get(args[0]);
+        Replay replay = Replay.read(file);
+        ReplayPlayer player = new ReplayPlayer(replay, new UnitFactory(false));
+        long target = (args.length > 1) ? Long.parseLong(args[1]) : replay.getEndTick();
+
+        long start = System.nanoTime();
+        GameEngine engine = player.seek(target);
+        double ms = (System.nanoTime() - start) / 1e6;
+
+        System.out.printf("seed=%d commands=%d recordedEnd=%d%n",
+                replay.seed, replay.getCommands().size(), replay.getEndTick());
+        System.out.printf("tick=%d gold=%d playerBase=%d enemyBase=%d%s%n",
+                engine.getTick(), engine.getGold(), engine.getPlayerBase().hp, engine.getEnemyBase().hp,
+                engine.isGameOver() ? (engine.playerWon() ? " (win)" : " (loss)") : "");
+        System.out.printf("replayed in %.1f ms%n", ms);
+    }
+}
@@ -0,0 +1,294 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Rollout-based planner for either side of a match: a one-level Monte Carlo
+ * tree search. The root's children are the candidate actions (lane and type
+ * of the next enemy spawn, or a player spawn, upgrade or wait), chosen by
+ * UCB1; each rollout copies the root into a scratch engine, applies the
+ * action, reseeds the RNG and plays a fixed horizon with random default
+ * policies, and the outcome is scored by base damage and the unit HP
+ * balance. Every worker thread runs its own bandit on its own engine and
+ * the visit counts are summed at the end (root parallelism), so workers
+ * share nothing while searching.
+ *
+ * Copy the live state into {@link #root()} on the thread that owns the live
+ * engine, then call {@link #plan} from any one thread. Not reentrant.
+ */
+public final class RolloutPlanner implements AutoCloseable {
+    public enum Side { ENEMY, PLAYER }
+
+    // Player actions besides spawns; spawns are type ordinal * lanes + lane.
+    private static final int WAIT = -1;
+    private static final int UPGRADE = -2;
+    private static final double EXPLORATION = 0.7;
+    // Unit HP difference that counts about as much as losing a whole base.
+    private static final double HP_SCALE = 600;
+
+    /** The chosen action and how the search got there. */
+    public static final class Decision {
+        public final Side side;
+        public final UnitType type;       // null for an upgrade or wait
+        public final int lane;
+        public final boolean upgrade;
+        public final int rollouts;
+        public final double value;        // mean reward of the chosen action, for the side
+
+        Decision(Side side, UnitType type, int lane, boolean upgrade, int rollouts, double value) {
+            this.side = side;
+            this.type = type;
+            this.lane = lane;
+            this.upgrade = upgrade;
+            this.rollouts = rollouts;
+            this.value = value;
+        }
+
+        /** The command that carries out the decision on the given tick, or null to wait. */
+        public GameCommand toCommand(long tick) {
+            if (upgrade) return GameCommand.upgrade(tick);
+            if (type == null) return null;
+            return (side == Side.ENEMY) ? GameCommand.enemyPlan(tick, type, lane) : GameCommand.spawn(tick, type, lane);
+        }
+
+        @Override
+        public String toString() {
+            String action = upgrade ? "upgrade" : (type == null) ? "wait" : type + " in lane " + (lane + 1);
+            return String.format("%s %s (%d rollouts, value %.3f)", side, action, rollouts, value);
+        }
+    }
+
+    private final Side side;
+    private final int horizonTicks;
+    private final int laneCount;
+    private final GameEngine root;
+    private final UnitType[] playerTypes;
+    private final Worker[] workers;
+    private final ExecutorService pool;
+
+    // Candidate actions of the current search
+    private int[] actions = new int[16];
+    private int actionCount;
+
+    /**
+     * @param threads      worker threads, including the one calling plan
+     * @param horizonTicks ticks each rollout plays past the root
+     */
+    public RolloutPlanner(UnitDefinitions definitions, int laneCount, Side side,
+                          int threads, int horizonTicks, long seed) {
+        this.side = side;
+        this.horizonTicks = horizonTicks;
+        this.laneCount = laneCount;
+        this.root = new GameEngine(new UnitFactory(definitions, false), laneCount, seed);
+
+        List<UnitType> players = new ArrayList<>();
+        for (UnitType type : UnitType.values()) {
+            if (definitions.team[type.ordinal()] == Unit.Team.PLAYER) players.add(type);
+        }
+        this.playerTypes = players.toArray(new UnitType[0]);
+
+        GameRandom seeds = new GameRandom(seed);
+        workers = new Worker[Math.max(1, threads)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker(definitions, seeds.split());
+        }
+        pool = (workers.length > 1) ? Executors.newFixedThreadPool(workers.length - 1, task -> {
+            Thread t = new Thread(task, "rollout-worker");
+            t.setDaemon(true);
+            return t;
+        }) : null;
+    }
+
+    /** The engine plans start from; copy the live match into it before each plan. */
+    public GameEngine root() {
+        return root;
+    }
+
+    public Side side() {
+        return side;
+    }
+
+    /**
+     * Searches for about budgetNanos and returns the most visited action,
+     * or null when the side has nothing to decide (both enemy spawns are
+     * already planned, or the match is over).
+     */
+    public Decision plan(long budgetNanos) {
+        if (root.isGameOver() || !collectActions()) return null;
+        long deadline = System.nanoTime() + budgetNanos;
+
+        List<Future<?>> running = new ArrayList<>(workers.length);
+        for (int i = 1; i < workers.length; i++) {
+            Worker w = workers[i];
+            running.add(pool.submit(() -> w.search(deadline)));
+        }
+        workers[0].search(deadline);
+        for (Future<?> f : running) {
+            try {
+                f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Rollout worker failed", e.getCause());
+            }
+        }
+
+        int best = 0, total = 0;
+        long bestVisits = -1;
+        double bestSum = 0;
+        for (int a = 0; a < actionCount; a++) {
+            long visits = 0;
+            double sum = 0;
+            for (Worker w : workers) {
+                visits += w.visits[a];
+                sum += w.reward[a];
+            }
+            total += visits;
+            if (visits > bestVisits) {
+                bestVisits = visits;
+                bestSum = sum;
+                best = a;
+            }
+        }
+        int action = actions[best];
+        double value = (bestVisits > 0) ? bestSum / bestVisits : 0;
+        if (action == WAIT) return new Decision(side, null, -1, false, total, value);
+        if (action == UPGRADE) return new Decision(side, null, -1, true, total, value);
+        return new Decision(side, UnitType.values()[action / laneCount], action % laneCount, false, total, value);
+    }
+
+    /** Fills actions for the root; false when there is nothing to choose. */
+    private boolean collectActions() {
+        actionCount = 0;
+        if (side == Side.ENEMY) {
+            int spawnPool = !root.hasEnemyPlan(GameEngine.POOL_ENEMY) ? GameEngine.POOL_ENEMY
+                    : !root.hasEnemyPlan(GameEngine.POOL_ELITE) ? GameEngine.POOL_ELITE : -1;
+            if (spawnPool < 0) return false;
+            for (UnitType type : root.spawnPoolTypes(spawnPool)) {
+                for (int lane = 0; lane < laneCount; lane++) addAction(type.ordinal() * laneCount + lane);
+            }
+        } else {
+            addAction(WAIT);
+            if (root.canUpgrade()) addAction(UPGRADE);
+            for (UnitType type : playerTypes) {
+                if (root.getGold() < root.cost(type)) continue;
+                for (int lane = 0; lane < laneCount; lane++) addAction(type.ordinal() * laneCount + lane);
+            }
+        }
+        return actionCount > 0;
+    }
+
+    private void addAction(int action) {
+        if (actionCount == actions.length) actions = Arrays.copyOf(actions, actionCount * 2);
+        actions[actionCount++] = action;
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) pool.shutdownNow();
+    }
+
+    /** One search thread's engine, RNG and bandit statistics. */
+    private final class Worker {
+        final GameEngine engine;
+        final GameRandom random;
+        long[] visits = new long[16];
+        double[] reward = new double[16];
+
+        Worker(UnitDefinitions definitions, GameRandom random) {
+            this.engine = new GameEngine(new UnitFactory(definitions, false), laneCount, 0);
+            this.random = random;
+        }
+
+        void search(long deadline) {
+            if (visits.length < actionCount) {
+                visits = new long[actions.length];
+                reward = new double[actions.length];
+            }
+            Arrays.fill(visits, 0, actionCount, 0);
+            Arrays.fill(reward, 0, actionCount, 0);
+
+            long n = 0;
+            do {
+                int a = select(n);
+                reward[a] += rollout(actions[a]);
+                visits[a]++;
+                n++;
+            } while (System.nanoTime() < deadline);
+        }
+
+        /** UCB1; every action is tried once before any is tried twice. */
+        private int select(long n) {
+            if (n < actionCount) return (int) n;
+            double logN = Math.log(n);
+            int best = 0;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int a = 0; a < actionCount; a++) {
+                double score = reward[a] / visits[a] + EXPLORATION * Math.sqrt(logN / visits[a]);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = a;
+                }
+            }
+            return best;
+        }
+
+        /** Plays one action out from the root and scores it for the planning side. */
+        private double rollout(int action) {
+            GameEngine e = engine;
+            e.copyStateFrom(root);
+            e.reseed(random.nextLong());
+            int playerHp = e.getPlayerBase().hp, enemyHp = e.getEnemyBase().hp;
+            int balance = hpBalance(e);
+
+            if (action == UPGRADE) {
+                e.upgradeGold();
+            } else if (action != WAIT) {
+                UnitType type = UnitType.values()[action / laneCount];
+                int lane = action % laneCount;
+                if (side == Side.ENEMY) e.planEnemySpawn(type, lane);
+                else e.spawnPlayer(type, lane);
+            }
+
+            for (int t = 0; t < horizonTicks && !e.isGameOver(); t++) {
+                randomPlayer(e);
+                e.step();
+            }
+
+            // Positive when things went the enemy's way.
+            double score;
+            if (e.isGameOver()) {
+                score = e.playerWon() ? -2 : 2;
+            } else {
+                double toPlayer = (playerHp - e.getPlayerBase().hp) / (double) Math.max(1, playerHp);
+                double toEnemy = (enemyHp - e.getEnemyBase().hp) / (double) Math.max(1, enemyHp);
+                score = toPlayer - toEnemy + Math.tanh((hpBalance(e) - balance) / HP_SCALE);
+            }
+            return (side == Side.ENEMY) ? score : -score;
+        }
+
+        /** Default player policy: a random unit into a random lane whenever it is affordable. */
+        private void randomPlayer(GameEngine e) {
+            if (playerTypes.length == 0) return;
+            UnitType type = playerTypes[random.nextInt(playerTypes.length)];
+            if (e.getGold() >= e.cost(type)) e.spawnPlayer(type, random.nextInt(laneCount));
+        }
+
+        /** Enemy unit HP minus player unit HP over all lanes. */
+        private int hpBalance(GameEngine e) {
+            int balance = 0;
+            for (int l = 0; l < laneCount; l++) {
+                LaneStore lane = e.lane(l);
+                for (int i = 0; i < lane.size(); i++) {
+                    balance += (lane.team(i) == LaneStore.ENEMY) ? lane.hp(i) : -lane.hp(i);
+                }
+            }
+            return balance;
+        }
+    }
+}
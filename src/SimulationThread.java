@@ -0,0 +1,192 @@
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a {@link GameEngine} on its own thread with a fixed-timestep
+ * accumulator. Real elapsed time is turned into whole TICK_MS steps, so a
+ * slow frame or GC pause is caught up with extra ticks instead of slowing
+ * the game down. Input arrives as tick-stamped {@link GameCommand}s and the
+ * result of each batch of ticks is published as a {@link RenderState}
+ * through a lock-free triple buffer.
+ *
+ * A time scale above one turns each real nanosecond into that many
+ * simulation nanoseconds, so several ticks run per batch; UNBOUNDED runs
+ * them back to back. Gold and spawns are timed by the engine in
+ * simulation time and come out exactly as at normal speed. A batch never
+ * runs longer than about one display frame, and above normal speed at most
+ * one state is published per frame; the ticks in between are never drawn.
+ * That way input, the AI and the display keep their pace however fast the
+ * match runs.
+ */
+public class SimulationThread implements Runnable {
+    public static final long TICK_NANOS = GameEngine.TICK_MS * 1_000_000L;
+    /** Time scale that runs ticks back to back, as fast as the CPU allows. */
+    public static final double UNBOUNDED = Double.POSITIVE_INFINITY;
+    // Longest stall we try to catch up on, in real ticks; anything beyond is dropped.
+    private static final int MAX_CATCH_UP_TICKS = 10;
+    // Longest a batch runs and, fast-forwarding, the shortest time between
+    // published states: about one frame of the 16 ms display timer.
+    private static final long FRAME_NANOS = TICK_NANOS / 2;
+    // Shortest sleep between batches when running fast, so each batch does real work.
+    private static final long MIN_FAST_PARK_NANOS = 1_000_000;
+
+    private final GameEngine engine;
+    private final ConcurrentLinkedQueue<GameCommand> commands = new ConcurrentLinkedQueue<>();
+
+    // Triple buffer: the sim thread owns back, the EDT owns its front,
+    // and the most recently published state sits in ready.
+    private final AtomicReference<RenderState> ready;
+    private RenderState back;
+
+    private volatile AiOpponent opponent;
+    private volatile InstantReplay instantReplay;
+    private volatile double timeScale = 1;
+    private volatile boolean running;
+    private Thread thread;
+
+    public SimulationThread(GameEngine engine) {
+        this.engine = engine;
+        this.ready = new AtomicReference<>(new RenderState(engine.getLaneCount()));
+        this.back = new RenderState(engine.getLaneCount());
+    }
+
+    public void start() {
+        running = true;
+        publish(System.nanoTime());
+        thread = new Thread(this, "simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the loop and waits for the thread to exit, so the engine and its
+     * recording are the caller's afterwards. The wait is at most the rest
+     * of the current batch, which stops at its frame deadline.
+     */
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            boolean interrupted = false;
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Drops queued commands and published states so a reset engine can be
+     * run again from tick 0. Only call while stopped.
+     */
+    public void reset() {
+        commands.clear();
+        ready.get().tick = -1;
+        back.tick = -1;
+    }
+
+    /** Lets an AI opponent see the engine between batches of ticks; null detaches it. */
+    public void setOpponent(AiOpponent opponent) {
+        this.opponent = opponent;
+    }
+
+    /** Records every tick into the buffer for rewinding; null stops recording. */
+    public void setInstantReplay(InstantReplay instantReplay) {
+        this.instantReplay = instantReplay;
+    }
+
+    /**
+     * Simulation seconds per real second: 2 and 8 fast-forward, UNBOUNDED
+     * runs as fast as possible, and values below 1 slow the match down.
+     * Takes effect on the next batch.
+     */
+    public void setTimeScale(double scale) {
+        if (!(scale > 0)) throw new IllegalArgumentException("Time scale must be positive: " + scale);
+        timeScale = scale;
+    }
+
+    public double getTimeScale() {
+        return timeScale;
+    }
+
+    /** Queues a command; it applies on its stamped tick, or the next one if already past. */
+    public void submit(GameCommand command) {
+        commands.add(command);
+    }
+
+    /**
+     * Swaps the caller's buffer for the newest published state if there is
+     * one, and returns whichever buffer the caller should draw.
+     */
+    public RenderState latest(RenderState front) {
+        if (ready.get().tick <= front.tick) {
+            return front;
+        }
+        return ready.getAndSet(front);
+    }
+
+    @Override
+    public void run() {
+        long previous = System.nanoTime();
+        long published = previous;
+        long accumulator = 0;       // simulation nanoseconds owed
+
+        while (running && !engine.isGameOver()) {
+            long now = System.nanoTime();
+            double scale = timeScale;
+            boolean unbounded = scale == UNBOUNDED;
+            if (!unbounded) {
+                long owed = accumulator + (long) ((now - previous) * scale);
+                accumulator = Math.min(owed, (long) (MAX_CATCH_UP_TICKS * TICK_NANOS * Math.max(1, scale)));
+            }
+            previous = now;
+
+            long deadline = now + FRAME_NANOS;
+            boolean stepped = false;
+            InstantReplay rewind = instantReplay;
+            while ((unbounded || accumulator >= TICK_NANOS) && !engine.isGameOver()) {
+                applyCommands();
+                engine.step();
+                if (rewind != null) rewind.record(engine);
+                if (!unbounded) accumulator -= TICK_NANOS;
+                stepped = true;
+                if (System.nanoTime() - deadline >= 0) break;
+            }
+            if (stepped) {
+                AiOpponent ai = opponent;
+                if (ai != null) ai.afterTicks(engine);
+                // Fast-forwarding, the states between publishes are never drawn.
+                if (scale <= 1 || now - published >= FRAME_NANOS || engine.isGameOver()) {
+                    publish(now);
+                    published = now;
+                }
+            }
+
+            if (unbounded) {
+                Thread.yield();
+            } else {
+                long wait = (long) ((TICK_NANOS - accumulator) / scale);
+                LockSupport.parkNanos((scale > 1) ? Math.max(wait, MIN_FAST_PARK_NANOS) : wait);
+            }
+        }
+    }
+
+    private void applyCommands() {
+        long nextTick = engine.getTick() + 1;
+        GameCommand command;
+        while ((command = commands.peek()) != null && command.tick <= nextTick) {
+            commands.poll();
+            engine.apply(command);
+        }
+    }
+
+    private void publish(long nanos) {
+        back.copyFrom(engine, nanos);
+        back = ready.getAndSet(back);
+    }
+}
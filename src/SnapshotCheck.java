@@ -0,0 +1,158 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Round-trips match state through a snapshot file. Every match is played
+ * by a random player, and at regular ticks it is captured, written, read
+ * back and restored twice: into a new engine and over an engine still
+ * holding another match. Both must hash equal to the original, and stay
+ * equal while all three play on with the same commands. Every other match
+ * swaps in unit definitions with doubled HP after the first snapshot, as a
+ * hot reload would, so the definitions a snapshot carries are checked too.
+ * Fails (exit code 1) at the first difference.
+ *
+ * Usage: java SnapshotCheck [matches] [everyTicks] [followTicks]
+ */
+public class SnapshotCheck {
+    private static final UnitType[] PLAYER_TYPES = {
+        UnitType.UNIT1, UnitType.UNIT2, UnitType.UNIT3, UnitType.UNIT4, UnitType.UNIT5
+    };
+    private static final long MAX_TICKS = 20_000;
+
+    private final Path file;
+    private final UnitDefinitions doubledHp;
+    private final GameEngine reused = new GameEngine(new UnitFactory(false), GameEngine.DEFAULT_LANE_COUNT, 0);
+    private final GameSnapshot snapshot = new GameSnapshot();
+    private int checks;
+
+    private SnapshotCheck(Path file) throws IOException {
+        this.file = file;
+        this.doubledHp = doubledHp();
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        int matches = (args.length > 0) ? Integer.parseInt(args[0]) : 20;
+        int every = (args.length > 1) ? Integer.parseInt(args[1]) : 200;
+        int follow = (args.length > 2) ? Integer.parseInt(args[2]) : 300;
+
+        Path file = Files.createTempFile("snapshot-check", ".lsn");
+        try {
+            SnapshotCheck check = new SnapshotCheck(file);
+            long start = System.nanoTime();
+            for (int m = 0; m < matches; m++) {
+                String failure = check.playMatch(m, every, follow);
+                if (failure != null) {
+                    System.out.printf("match %d (seed %d): %s%n", m, m, failure);
+                    System.out.println("FAIL: a restored snapshot differs from the match it was taken from");
+                    System.exit(1);
+                }
+            }
+            System.out.printf("%d matches, %d snapshots of %d bytes or less round-tripped in %.1f s%n",
+                    matches, check.checks, check.snapshot.size(), (System.nanoTime() - start) / 1e9);
+            System.out.println("OK");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /** Plays one match, checking a round trip every few ticks; a description of the first failure, or null. */
+    private String playMatch(int m, int every, int follow) throws IOException {
+        UnitFactory factory = new UnitFactory(false);
+        GameEngine engine = new GameEngine(factory, GameEngine.DEFAULT_LANE_COUNT, m);
+        GameRandom player = new GameRandom(~m);
+        boolean reload = (m % 2) == 1;
+
+        while (!engine.isGameOver() && engine.getTick() < MAX_TICKS) {
+            if (reload && engine.getTick() == every + every / 2) factory.setDefinitions(doubledHp);
+            if (engine.getTick() > 0 && engine.getTick() % every == 0) {
+                String failure = roundTrip(engine, new GameRandom(player.nextLong()), follow);
+                if (failure != null) return failure;
+            }
+            play(engine, player);
+            engine.step();
+        }
+        return null;
+    }
+
+    /**
+     * Saves and reloads the engine's state, then follows it against the
+     * restored copies for a number of ticks. The original engine is left
+     * where it was by playing the follow-up on a copy of it.
+     */
+    private String roundTrip(GameEngine engine, GameRandom player, int follow) throws IOException {
+        checks++;
+        snapshot.captureFrom(engine);
+        snapshot.write(file);
+        GameSnapshot read = GameSnapshot.read(file);
+
+        GameEngine original = new GameEngine(new UnitFactory(false), engine.getLaneCount(), engine.getSeed());
+        original.copyStateFrom(engine);
+        GameEngine fresh = read.newEngine(new UnitFactory(false));
+        read.restoreInto(reused);
+
+        for (int t = 0; t <= follow && !original.isGameOver(); t++) {
+            if (t > 0) {
+                GameCommand command = play(original, player);
+                if (command != null) {
+                    fresh.apply(command);
+                    reused.apply(command);
+                }
+                original.step();
+                fresh.step();
+                reused.step();
+            }
+            String failure = compare(original, fresh, "new engine");
+            if (failure == null) failure = compare(original, reused, "reused engine");
+            if (failure != null) {
+                return String.format("snapshot of tick %d, %d ticks on: %s", engine.getTick(), t, failure);
+            }
+        }
+        return null;
+    }
+
+    private static String compare(GameEngine original, GameEngine restored, String name) {
+        if (original.stateHash() == restored.stateHash()) return null;
+        String field = original.firstDifference(restored);
+        return name + " " + ((field != null) ? field : "hashes differ but no field does");
+    }
+
+    /** Spawns or upgrades at random when the gold allows; the command applied, or null. */
+    private static GameCommand play(GameEngine engine, GameRandom player) {
+        long next = engine.getTick() + 1;
+        UnitType type = PLAYER_TYPES[player.nextInt(PLAYER_TYPES.length)];
+        GameCommand command = null;
+        if (engine.canUpgrade() && player.nextInt(8) == 0) {
+            command = GameCommand.upgrade(next);
+        } else if (engine.getGold() >= engine.cost(type)) {
+            command = GameCommand.spawn(next, type, player.nextInt(engine.getLaneCount()));
+        }
+        if (command != null) engine.apply(command);
+        return command;
+    }
+
+    /** The bundled definitions with every unit's HP doubled. */
+    private static UnitDefinitions doubledHp() throws IOException {
+        StringBuilder text = new StringBuilder();
+        try (InputStream in = SnapshotCheck.class.getClassLoader().getResourceAsStream("units/units.txt")) {
+            if (in == null) throw new IOException("Missing units/units.txt on the classpath");
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] f = line.trim().split("\\s+");
+                if (f[0].equals("unit")) {
+                    f[3] = Integer.toString(2 * Integer.parseInt(f[3]));
+                    line = String.join(" ", f);
+                }
+                text.append(line).append('\n');
+            }
+        }
+        return UnitDefinitions.parse(new BufferedReader(new StringReader(text.toString())), "doubled HP");
+    }
+}
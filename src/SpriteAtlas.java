@@ -0,0 +1,96 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * All unit sprites packed at load time into one compatible image, with a
+ * region per UnitType. Drawing every unit from the same source image avoids
+ * switching images between draws. Regions are packed on shelves, tallest
+ * sprites first.
+ */
+public final class SpriteAtlas {
+    private static final int MAX_ROW_WIDTH = 512;
+    private static final int PADDING = 1;
+
+    private final BufferedImage image;
+    // Region of each type in the atlas, by ordinal.
+    private final int[] sx, sy, w, h;
+    private final boolean[] present;
+
+    private SpriteAtlas(BufferedImage image, int[] sx, int[] sy, int[] w, int[] h, boolean[] present) {
+        this.image = image;
+        this.sx = sx;
+        this.sy = sy;
+        this.w = w;
+        this.h = h;
+        this.present = present;
+    }
+
+    /** Packs the pre-scaled sprite of every unit type the factory can load. */
+    public static SpriteAtlas build(UnitFactory factory) {
+        UnitType[] types = UnitType.values();
+        Image[] sprites = new Image[types.length];
+        for (UnitType type : types) {
+            sprites[type.ordinal()] = factory.sprite(type);
+        }
+        return build(sprites);
+    }
+
+    /** Packs sprites indexed by UnitType ordinal; null entries get no region. */
+    public static SpriteAtlas build(Image[] sprites) {
+        int n = sprites.length;
+        int[] sx = new int[n], sy = new int[n], w = new int[n], h = new int[n];
+        boolean[] present = new boolean[n];
+
+        Integer[] order = new Integer[n];
+        for (int t = 0; t < n; t++) {
+            order[t] = t;
+            if (sprites[t] != null) {
+                present[t] = true;
+                w[t] = sprites[t].getWidth(null);
+                h[t] = sprites[t].getHeight(null);
+            }
+        }
+        Arrays.sort(order, (a, b) -> h[b] - h[a]);
+
+        int x = 0, y = 0, rowHeight = 0, atlasWidth = 0;
+        for (int t : order) {
+            if (!present[t]) continue;
+            if (x > 0 && x + w[t] > MAX_ROW_WIDTH) {
+                x = 0;
+                y += rowHeight + PADDING;
+                rowHeight = 0;
+            }
+            sx[t] = x;
+            sy[t] = y;
+            x += w[t] + PADDING;
+            rowHeight = Math.max(rowHeight, h[t]);
+            atlasWidth = Math.max(atlasWidth, x);
+        }
+        if (atlasWidth == 0) {
+            return new SpriteAtlas(null, sx, sy, w, h, present);
+        }
+
+        BufferedImage atlas = SpriteStore.createCompatibleImage(atlasWidth, y + rowHeight);
+        Graphics2D g = atlas.createGraphics();
+        try {
+            g.setComposite(AlphaComposite.Src);
+            for (int t = 0; t < n; t++) {
+                if (present[t]) g.drawImage(sprites[t], sx[t], sy[t], null);
+            }
+        } finally {
+            g.dispose();
+        }
+        return new SpriteAtlas(atlas, sx, sy, w, h, present);
+    }
+
+    public boolean has(int type) {
+        return present[type];
+    }
+
+    /** Draws the region for a type with its top-left corner at (x, y). */
+    public void draw(Graphics g, int type, int x, int y) {
+        int left = sx[type], top = sy[type];
+        g.drawImage(image, x, y, x + w[type], y + h[type], left, top, left + w[type], top + h[type], null);
+    }
+}
@@ -1,25 +1,105 @@
-import java.awt.Image;
+import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.util.HashMap;
+import java.net.URL;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import javax.imageio.ImageIO;
 
+/**
+ * Thread-safe sprite cache. Besides the raw decoded PNGs it hands out copies
+ * pre-scaled to a unit's on-screen size in the screen's compatible format,
+ * so drawing is a straight blit instead of a rescale from the full-size PNG
+ * every frame. Compatible images are "managed": Java2D caches them in video
+ * memory on its own, which gives the acceleration of a VolatileImage without
+ * having to handle contents being lost.
+ *
+ * Paths are classpath resource names such as "images/unit1.png"; a path
+ * that is not on the classpath is read as a file instead (the benchmark
+ * tools pass directories on disk). Decoding happens on whichever thread
+ * first asks, so the game preloads everything on a background executor
+ * and the simulation only ever peeks at what is already cached.
+ */
 public final class SpriteStore {
-   private static final Map<String, Image> cache = new HashMap();
+   // Marks paths that failed to load, since the maps cannot hold null.
+   private static final Image MISSING = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
 
-   public static Image get(String var0) {
+   private static final Map<String, Image> raw = new ConcurrentHashMap<>();
+   private static final Map<String, Image> scaled = new ConcurrentHashMap<>();
+
+   static {
+      // Decode streams in memory rather than through a temporary file.
+      ImageIO.setUseCache(false);
+   }
+
+   private SpriteStore() {
+   }
+
+   /** The sprite exactly as decoded, or null if it could not be read. */
+   public static Image get(String path) {
+      Image image = raw.computeIfAbsent(path, SpriteStore::load);
+      return (image == MISSING) ? null : image;
+   }
+
+   /** The sprite scaled to width x height in a display-compatible format, or null. */
+   public static Image get(String path, int width, int height) {
+      Image image = scaled.computeIfAbsent(path + '@' + width + 'x' + height, key -> {
+         Image source = get(path);
+         return (source != null) ? scale(source, width, height) : MISSING;
+      });
+      return (image == MISSING) ? null : image;
+   }
+
+   /** The scaled sprite if it is already cached, else null; never touches the disk. */
+   public static Image peek(String path, int width, int height) {
+      Image image = scaled.get(path + '@' + width + 'x' + height);
+      return (image == MISSING) ? null : image;
+   }
+
+   /** Decodes and scales a sprite on the executor; the future completes with get's result. */
+   public static CompletableFuture<Image> preload(String path, int width, int height, Executor executor) {
+      return CompletableFuture.supplyAsync(() -> get(path, width, height), executor);
+   }
+
+   /** Drops every cached sprite, so the next get decodes again. */
+   static void clear() {
+      raw.clear();
+      scaled.clear();
+   }
+
+   private static Image load(String path) {
       try {
-         Image var1 = (Image)cache.get(var0);
-         if (var1 != null) {
-            return var1;
-         } else {
-            BufferedImage var3 = ImageIO.read(new File(var0));
-            cache.put(var0, var3);
-            return var3;
-         }
-      } catch (Exception var2) {
-         return null;
+         URL resource = SpriteStore.class.getClassLoader().getResource(path);
+         BufferedImage image = (resource != null) ? ImageIO.read(resource) : ImageIO.read(new File(path));
+         return (image != null) ? image : MISSING;
+      } catch (Exception e) {
+         return MISSING;
+      }
+   }
+
+   private static BufferedImage scale(Image source, int width, int height) {
+      BufferedImage target = createCompatibleImage(width, height);
+      Graphics2D g = target.createGraphics();
+      try {
+         g.setComposite(AlphaComposite.Src);
+         g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+         g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+         g.drawImage(source, 0, 0, width, height, null);
+      } finally {
+         g.dispose();
+      }
+      return target;
+   }
+
+   /** An empty translucent image in the screen's format (plain ARGB when headless). */
+   static BufferedImage createCompatibleImage(int width, int height) {
+      if (!GraphicsEnvironment.isHeadless()) {
+         GraphicsConfiguration config = GraphicsEnvironment.getLocalGraphicsEnvironment()
+               .getDefaultScreenDevice().getDefaultConfiguration();
+         return config.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
       }
+      return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
    }
 }
\ No newline at end of file
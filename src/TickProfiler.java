@@ -0,0 +1,185 @@
+import java.lang.management.ManagementFactory;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Per-tick timing of the simulation phases and of panel painting, kept in
+ * histograms for the perf overlay and, while a Flight Recorder recording is
+ * running, emitted as JFR events. The engine only times anything while a
+ * profiler is attached to it, so with none attached a tick costs one null
+ * check per phase.
+ *
+ * Phases: due events (gold payouts, enemy and elite spawns), the lane
+ * update as a whole and per lane, and the game-over check. The simulation
+ * thread records ticks and the EDT records paints and frames.
+ */
+public final class TickProfiler {
+    public static final int PHASE_EVENTS = 0;
+    public static final int PHASE_LANES = 1;
+    public static final int PHASE_GAME_OVER = 2;
+    public static final String[] PHASE_NAMES = {"events", "lanes", "game over"};
+
+    private static final EventType TICK_EVENT = registered(TickEvent.class);
+    private static final EventType PAINT_EVENT = registered(PaintEvent.class);
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    final LatencyHistogram tick = new LatencyHistogram();
+    final LatencyHistogram[] phases = new LatencyHistogram[PHASE_NAMES.length];
+    final LatencyHistogram[] lanes;
+    final LatencyHistogram allocatedPerTick = new LatencyHistogram();
+    final LatencyHistogram paint = new LatencyHistogram();
+    final int[] unitsPerLane;
+    volatile long droppedFrames;
+    volatile long startLatencyNanos;    // match start or retry to its first frame
+
+    // Current tick, simulation thread only
+    private long tickStart, phaseStart, allocatedAtStart;
+    private final long[] phaseNanos = new long[PHASE_NAMES.length];
+
+    public TickProfiler(int laneCount) {
+        for (int i = 0; i < phases.length; i++) {
+            phases[i] = new LatencyHistogram();
+        }
+        lanes = new LatencyHistogram[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new LatencyHistogram();
+        }
+        unitsPerLane = new int[laneCount];
+    }
+
+    // --- Simulation thread ---
+
+    void beginTick() {
+        allocatedAtStart = allocatedBytes();
+        tickStart = phaseStart = System.nanoTime();
+    }
+
+    /** Ends the phase that started at the previous mark. */
+    void endPhase(int phase) {
+        long now = System.nanoTime();
+        phaseNanos[phase] = now - phaseStart;
+        phases[phase].record(phaseNanos[phase]);
+        phaseStart = now;
+    }
+
+    /** Called from whichever thread updated the lane; each lane has its own histogram. */
+    void recordLane(int lane, long nanos) {
+        lanes[lane].record(nanos);
+    }
+
+    void endTick(GameEngine engine) {
+        long nanos = System.nanoTime() - tickStart;
+        long allocated = allocatedBytes() - allocatedAtStart;
+        tick.record(nanos);
+        allocatedPerTick.record(allocated);
+        int units = 0;
+        for (int i = 0; i < unitsPerLane.length; i++) {
+            unitsPerLane[i] = engine.lane(i).size();
+            units += unitsPerLane[i];
+        }
+
+        if (TICK_EVENT.isEnabled()) {
+            TickEvent event = new TickEvent();
+            event.tick = engine.getTick();
+            event.time = nanos;
+            event.events = phaseNanos[PHASE_EVENTS];
+            event.lanes = phaseNanos[PHASE_LANES];
+            event.gameOver = phaseNanos[PHASE_GAME_OVER];
+            event.units = units;
+            event.allocated = allocated;
+            event.commit();
+        }
+    }
+
+    // --- EDT ---
+
+    void recordPaint(long nanos) {
+        paint.record(nanos);
+        if (PAINT_EVENT.isEnabled()) {
+            PaintEvent event = new PaintEvent();
+            event.time = nanos;
+            event.droppedFrames = droppedFrames;
+            event.commit();
+        }
+    }
+
+    void frameDropped() {
+        droppedFrames++;
+    }
+
+    /** Kept even while detached, so the overlay can show how long the last start took. */
+    void recordStartLatency(long nanos) {
+        startLatencyNanos = nanos;
+    }
+
+    /** Clears every histogram and counter. Call while detached from the engine. */
+    public void reset() {
+        tick.reset();
+        for (LatencyHistogram h : phases) h.reset();
+        for (LatencyHistogram h : lanes) h.reset();
+        allocatedPerTick.reset();
+        paint.reset();
+        droppedFrames = 0;
+    }
+
+    private static EventType registered(Class<? extends Event> eventClass) {
+        FlightRecorder.register(eventClass);
+        return EventType.getEventType(eventClass);
+    }
+
+    private static long allocatedBytes() {
+        return (THREADS != null) ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+            if (threads.isThreadAllocatedMemorySupported()) {
+                threads.setThreadAllocatedMemoryEnabled(true);
+                return threads;
+            }
+        }
+        return null;
+    }
+
+    // --- Flight Recorder events ---
+
+    @Name("botanicalroyale.Tick")
+    @Label("Simulation Tick")
+    @Category("Botanical Royale")
+    @StackTrace(false)
+    static final class TickEvent extends Event {
+        @Label("Tick")
+        long tick;
+        @Label("Time") @Timespan
+        long time;
+        @Label("Events") @Timespan
+        long events;
+        @Label("Lanes") @Timespan
+        long lanes;
+        @Label("Game Over Check") @Timespan
+        long gameOver;
+        @Label("Units")
+        int units;
+        @Label("Allocated Bytes")
+        long allocated;
+    }
+
+    @Name("botanicalroyale.Paint")
+    @Label("Panel Paint")
+    @Category("Botanical Royale")
+    @StackTrace(false)
+    static final class PaintEvent extends Event {
+        @Label("Time") @Timespan
+        long time;
+        @Label("Dropped Frames")
+        long droppedFrames;
+    }
+}
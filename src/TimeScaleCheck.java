@@ -0,0 +1,122 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs the SimulationThread at a range of time scales while a stand-in for
+ * the EDT polls the published state every frame and spawns units as gold
+ * allows. For each scale it reports the speed reached, how many ticks each
+ * drawn state stood for, the longest wait for a new state and what the
+ * simulation thread allocated per tick. A match counts as running until
+ * the frame that saw it end, so short, fast matches read a little slow.
+ * Every match is then replayed tick by tick from its recording, and the
+ * check fails (exit code 1) unless the states hash equal: fast-forwarding
+ * must not change gold, spawn timing or anything else.
+ *
+ * Usage: java TimeScaleCheck [secondsPerScale]
+ */
+public class TimeScaleCheck {
+    private static final double[] SCALES = {1, 2, 8, 1000, SimulationThread.UNBOUNDED};
+    private static final long FRAME_NANOS = 16_000_000;
+    private static final double WARMUP_SECONDS = 1;
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final GameEngine engine = new GameEngine(new UnitFactory(false), GameEngine.DEFAULT_LANE_COUNT, 0);
+    private final SimulationThread simulation = new SimulationThread(engine);
+    private RenderState state = new RenderState(engine.getLaneCount());
+    private long seed = 1;
+    private int mismatches;
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        double seconds = (args.length > 0) ? Double.parseDouble(args[0]) : 3;
+
+        TimeScaleCheck check = new TimeScaleCheck();
+        check.measure(SimulationThread.UNBOUNDED, WARMUP_SECONDS, false);
+        System.out.printf("%-9s %12s %8s %12s %14s %12s %10s%n", "scale", "sim s/real s", "matches",
+                "ticks/frame", "max wait (ms)", "bytes/tick", "replayed");
+        for (double scale : SCALES) {
+            check.measure(scale, seconds, true);
+        }
+
+        if (check.mismatches > 0) {
+            System.out.println("FAIL: fast-forwarded matches differ from their replays");
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+
+    /** Plays matches at one scale for about the given running time. */
+    private void measure(double scale, double seconds, boolean print) {
+        simulation.setTimeScale(scale);
+        long ticks = 0, frames = 0, maxWait = 0, allocated = 0, allocationTicks = 0, runningNanos = 0;
+        int matches = 0, replayed = 0;
+        long budget = (long) (seconds * 1e9);
+        while (runningNanos < budget) {
+            engine.reset(seed++);
+            Replay replay = engine.startRecording();
+            simulation.reset();
+            state.tick = -1;
+            state.gameOver = false;
+            long start = System.nanoTime(), end = start + budget - runningNanos;
+            simulation.start();
+            Thread simThread = findThread("simulation");
+
+            // Allocation between the first and last frame that saw the thread alive.
+            long firstBytes = -1, firstTick = 0, lastBytes = -1, lastTick = 0;
+            long lastNew = start;
+            while (!state.gameOver && System.nanoTime() < end) {
+                LockSupport.parkNanos(FRAME_NANOS);
+                long previousTick = state.tick;
+                state = simulation.latest(state);
+                long now = System.nanoTime();
+                if (state.tick != previousTick) {
+                    maxWait = Math.max(maxWait, now - lastNew);
+                    lastNew = now;
+                    frames++;
+                }
+                long bytes = (simThread != null) ? threads.getThreadAllocatedBytes(simThread.getId()) : -1;
+                if (bytes >= 0 && simThread.isAlive()) {
+                    if (firstBytes < 0) {
+                        firstBytes = bytes;
+                        firstTick = state.tick;
+                    }
+                    lastBytes = bytes;
+                    lastTick = state.tick;
+                }
+                if (state.gold >= engine.cost(UnitType.UNIT2)) {
+                    simulation.submit(GameCommand.spawn(state.tick + 1, UnitType.UNIT2, (int) (state.tick % 3)));
+                }
+            }
+            simulation.stop();
+            runningNanos += System.nanoTime() - start;
+            allocated += lastBytes - firstBytes;
+            allocationTicks += lastTick - firstTick;
+            ticks += engine.getTick();
+            matches++;
+
+            GameEngine reference = new ReplayPlayer(replay, new UnitFactory(false)).seek(engine.getTick());
+            if (reference.stateHash() != engine.stateHash()) {
+                mismatches++;
+                System.out.printf("seed %d at tick %d differs from its replay: %s%n",
+                        replay.seed, engine.getTick(), engine.firstDifference(reference));
+            } else {
+                replayed++;
+            }
+        }
+        if (!print) return;
+        System.out.printf("%-9s %12.1f %8d %12.1f %14.1f %12.1f %7d/%d%n",
+                (scale == SimulationThread.UNBOUNDED) ? "unbounded" : "x" + (int) scale,
+                ticks * GameEngine.TICK_MS / 1000.0 / (runningNanos / 1e9), matches,
+                ticks / (double) Math.max(1, frames), maxWait / 1e6,
+                allocated / (double) Math.max(1, allocationTicks), replayed, matches);
+    }
+
+    /** The live thread of that name, or null when it has already finished. */
+    private static Thread findThread(String name) {
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            if (t.getName().equals(name)) return t;
+        }
+        return null;
+    }
+}
@@ -1,5 +1,10 @@
 import java.awt.*;
 
+/**
+ * A single unit as handed out by UnitFactory. The simulation keeps units as
+ * rows in a LaneStore and the panel draws those rows through UnitRenderer;
+ * a Unit is copied into its row on spawn.
+ */
 public class Unit {
     public enum Team { PLAYER, ENEMY }
 
@@ -7,51 +12,33 @@ public class Unit {
     public int lane = -1;
 
     private final Team team;
+    private final UnitType type;
     private final UnitStats stats;
     private final Image sprite;
 
     private int hp;
-    private int cd = 0;        
 
-    public Unit(int x, int y, Team team, UnitStats stats, Image sprite) {
+    public Unit(int x, int y, Team team, UnitType type, UnitStats stats, Image sprite) {
         this.x = x; this.y = y;
         this.team = team;
+        this.type = type;
         this.stats = stats;
         this.sprite = sprite;
         this.hp = stats.hp;
     }
 
     public Team getTeam() { return team; }
+    public UnitType getType() { return type; }
     public boolean alive() { return hp > 0; }
+    public int hp() { return hp; }
     public int width()  { return stats.width; }
     public int height() { return stats.height; }
-    public Rectangle bounds() { return new Rectangle(x, y - height(), width(), height()); }
     public int cost() { return stats.cost; }
 
-    public void tickCooldown() { if (cd > 0) cd--; }
-    public boolean canHit() { return cd == 0; }
-    public void onHit() { cd = stats.attackInterval; }
-
-    public int nextStep(double speedScale) {
-        int base = Math.max(1, (int)Math.round(stats.speed * speedScale));
-        return (team == Team.PLAYER) ? +base : -base;
-    }
-
-    public void hit(Unit other) {
-        if (!canHit()) return;
-        other.hp -= Math.max(1, stats.damage);
-        onHit();
-    }
-
-    public void hitBase(Base base) {
-        if (!canHit()) return;
-        base.hp -= Math.max(1, stats.damage);
-        onHit();
-    }
-
     public void draw(Graphics g) {
         if (sprite != null) {
-            g.drawImage(sprite, x, y - height(), width(), height(), null);
+            // Sprites come pre-scaled from SpriteStore, so this is a plain blit.
+            g.drawImage(sprite, x, y - height(), null);
         } else {
             g.setColor(Color.GRAY);
             g.fillRect(x, y - height(), width(), height());
@@ -0,0 +1,88 @@
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.function.Consumer;
+
+/**
+ * Reloads a unit definitions file whenever it changes on disk and hands the
+ * new set to a callback, on its own daemon thread. The tick loop never
+ * waits for it: loading happens here, and the callback only has to swap a
+ * reference. A file that fails to load is reported and the old definitions
+ * stay in use.
+ */
+public final class UnitDefinitionWatcher implements AutoCloseable {
+    // Editors often save in several writes; wait for them to settle.
+    private static final long SETTLE_MS = 100;
+
+    private final Path file;
+    private final Consumer<UnitDefinitions> onReload;
+    private final WatchService watcher;
+    private final Thread thread;
+
+    private UnitDefinitionWatcher(Path file, Consumer<UnitDefinitions> onReload) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.onReload = onReload;
+        this.watcher = FileSystems.getDefault().newWatchService();
+        // Watch the directory: saving through a rename replaces the file itself.
+        this.file.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        this.thread = new Thread(this::run, "unit-definitions-watcher");
+        thread.setDaemon(true);
+    }
+
+    public static UnitDefinitionWatcher start(Path file, Consumer<UnitDefinitions> onReload) throws IOException {
+        UnitDefinitionWatcher w = new UnitDefinitionWatcher(file, onReload);
+        w.thread.start();
+        return w;
+    }
+
+    private void run() {
+        Path name = file.getFileName();
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                boolean changed = touches(key, name);
+                key.reset();
+                if (!changed) continue;
+
+                // Swallow the rest of this save before reading the file.
+                Thread.sleep(SETTLE_MS);
+                while ((key = watcher.poll()) != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+                reload();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    private static boolean touches(WatchKey key, Path name) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (name.equals(event.context())) changed = true;
+        }
+        return changed;
+    }
+
+    private void reload() {
+        try {
+            onReload.accept(UnitDefinitions.load(file));
+            System.out.println("Reloaded unit definitions from " + file);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Unit definitions not reloaded: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watcher.close();
+        thread.interrupt();
+    }
+}
@@ -0,0 +1,400 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One immutable set of unit definitions: stats, side and sprite per
+ * UnitType, and the types randomEnemy and randomElite draw from. Everything
+ * is held in arrays indexed by UnitType.ordinal(), so a lookup is one array
+ * read, and swapping in a new set is a single reference write.
+ *
+ * Definitions are written as text and compiled to a small binary table that
+ * is memory-mapped when loaded. Text lines are
+ *
+ *   unit TYPE player|enemy hp damage speed attackInterval width height cost sprite
+ *   pool enemy|elite TYPE...
+ *
+ * with blank lines and #-comments ignored. Binary layout (big-endian):
+ * magic "LUD1", version byte, record count, pool count, pool section offset
+ * and string section offset ints; then one fixed-size record per unit (name
+ * ref, team, hp, damage, speed, attackInterval, width, height, cost and
+ * sprite ref ints); then per pool its name ref, type count and type name
+ * refs; then the strings, each a short length and UTF-8 bytes. A ref is a
+ * byte offset into the string section. Types are stored by name, so adding
+ * a UnitType does not invalidate existing tables.
+ *
+ * Usage: java UnitDefinitions units.txt [units.bin]
+ */
+public final class UnitDefinitions {
+    public static final String FILE_PROPERTY = "units.file";
+    private static final String BUNDLED = "units/units.txt";
+
+    private static final int MAGIC = 0x4C554431; // "LUD1"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 1 + 4 * 4;
+    private static final int RECORD_BYTES = 10 * 4;
+
+    private static volatile UnitDefinitions configured;
+
+    final UnitStats[] stats;         // null where a type is not defined
+    final Unit.Team[] team;
+    final String[] sprite;
+    final UnitType[] enemyPool;
+    final UnitType[] elitePool;
+    private volatile byte[] encoded;  // the binary table, once a replay or snapshot needed it
+
+    private UnitDefinitions(UnitStats[] stats, Unit.Team[] team, String[] sprite,
+                            UnitType[] enemyPool, UnitType[] elitePool) {
+        this.stats = stats;
+        this.team = team;
+        this.sprite = sprite;
+        this.enemyPool = enemyPool;
+        this.elitePool = elitePool;
+    }
+
+    /**
+     * The definitions factories start from: the file named by -Dunits.file
+     * if set (text is compiled next to it first), else the table bundled on
+     * the classpath. Loaded once.
+     */
+    public static UnitDefinitions configured() {
+        UnitDefinitions defs = configured;
+        if (defs == null) {
+            synchronized (UnitDefinitions.class) {
+                defs = configured;
+                if (defs == null) {
+                    configured = defs = loadConfigured();
+                }
+            }
+        }
+        return defs;
+    }
+
+    /** The -Dunits.file path, or null when the bundled table is in use. */
+    public static Path configuredFile() {
+        String file = System.getProperty(FILE_PROPERTY);
+        return (file != null) ? Paths.get(file) : null;
+    }
+
+    private static UnitDefinitions loadConfigured() {
+        try {
+            Path file = configuredFile();
+            if (file != null) return load(file);
+            InputStream in = UnitDefinitions.class.getClassLoader().getResourceAsStream(BUNDLED);
+            if (in == null) throw new IOException("Missing " + BUNDLED + " on the classpath");
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                return parse(reader, BUNDLED);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load unit definitions", e);
+        }
+    }
+
+    /** Compiles a .txt file to the .bin beside it and maps that, or maps a .bin directly. */
+    public static UnitDefinitions load(Path file) throws IOException {
+        if (file.toString().endsWith(".txt")) {
+            Path binary = binaryFor(file);
+            compile(file, binary);
+            return map(binary);
+        }
+        return map(file);
+    }
+
+    /** Where load puts the compiled table for a text file. */
+    static Path binaryFor(Path text) {
+        String name = text.getFileName().toString();
+        if (name.endsWith(".txt")) name = name.substring(0, name.length() - ".txt".length());
+        return text.resolveSibling(name + ".bin");
+    }
+
+    /**
+     * Parses the text file and writes its binary table. The table is written
+     * to a temporary file and moved over the target, so a reader never maps
+     * a half-written one.
+     */
+    public static UnitDefinitions compile(Path text, Path binary) throws IOException {
+        UnitDefinitions defs;
+        try (BufferedReader reader = Files.newBufferedReader(text, StandardCharsets.UTF_8)) {
+            defs = parse(reader, text.toString());
+        }
+        write(defs.toBinary(), binary);
+        return defs;
+    }
+
+    /** Writes a table to a temporary file beside binary and moves it into place. */
+    private static void write(ByteBuffer table, Path binary) throws IOException {
+        Path dir = binary.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(dir, binary.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (table.hasRemaining()) out.write(table);
+            }
+            Files.move(temp, binary, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /** Maps a binary table read-only and decodes it into arrays. */
+    public static UnitDefinitions map(Path binary) throws IOException {
+        try (FileChannel channel = FileChannel.open(binary, StandardOpenOption.READ)) {
+            return fromBinary(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), binary.toString());
+        }
+    }
+
+    // --- Text ---
+
+    static UnitDefinitions parse(BufferedReader reader, String source) throws IOException {
+        int n = UnitType.values().length;
+        UnitStats[] stats = new UnitStats[n];
+        Unit.Team[] team = new Unit.Team[n];
+        String[] sprite = new String[n];
+        Map<String, UnitType[]> pools = new LinkedHashMap<>();
+
+        String line;
+        int lineNo = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            int hash = line.indexOf('#');
+            if (hash >= 0) line = line.substring(0, hash);
+            line = line.trim();
+            if (line.isEmpty()) continue;
+
+            String[] f = line.split("\\s+");
+            String where = source + ":" + lineNo + ": ";
+            try {
+                if (f[0].equals("unit") && f.length == 11) {
+                    UnitType type = UnitType.valueOf(f[1]);
+                    int t = type.ordinal();
+                    if (stats[t] != null) throw new IOException(where + "duplicate unit " + type);
+                    team[t] = teamNamed(f[2], where);
+                    stats[t] = checked(new UnitStats(Integer.parseInt(f[3]), Integer.parseInt(f[4]),
+                            Integer.parseInt(f[5]), Integer.parseInt(f[6]), Integer.parseInt(f[7]),
+                            Integer.parseInt(f[8]), Integer.parseInt(f[9])), where);
+                    sprite[t] = f[10];
+                } else if (f[0].equals("pool") && f.length >= 3) {
+                    UnitType[] members = new UnitType[f.length - 2];
+                    for (int i = 0; i < members.length; i++) {
+                        members[i] = UnitType.valueOf(f[i + 2]);
+                    }
+                    pools.put(f[1], members);
+                } else {
+                    throw new IOException(where + "expected 'unit' with 10 fields or 'pool' with members");
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IOException(where + e.getMessage(), e);
+            }
+        }
+        return validated(stats, team, sprite, pools, source);
+    }
+
+    /**
+     * Rejects stats the game cannot run with: the HP bar and combat divide
+     * by hp and attackInterval, and a unit needs a size to be drawn and hit.
+     */
+    private static UnitStats checked(UnitStats s, String where) throws IOException {
+        if (s.hp <= 0) throw new IOException(where + "hp must be positive, not " + s.hp);
+        if (s.attackInterval <= 0) throw new IOException(where + "attackInterval must be positive, not " + s.attackInterval);
+        if (s.width <= 0 || s.height <= 0) {
+            throw new IOException(where + "width and height must be positive, not " + s.width + "x" + s.height);
+        }
+        if (s.speed < 0) throw new IOException(where + "speed must not be negative, not " + s.speed);
+        if (s.cost < 0) throw new IOException(where + "cost must not be negative, not " + s.cost);
+        return s;
+    }
+
+    private static Unit.Team teamNamed(String name, String where) throws IOException {
+        switch (name) {
+            case "player": return Unit.Team.PLAYER;
+            case "enemy": return Unit.Team.ENEMY;
+            default: throw new IOException(where + "team must be player or enemy, not " + name);
+        }
+    }
+
+    private static UnitDefinitions validated(UnitStats[] stats, Unit.Team[] team, String[] sprite,
+                                             Map<String, UnitType[]> pools, String source) throws IOException {
+        for (String name : new String[] {"enemy", "elite"}) {
+            UnitType[] pool = pools.get(name);
+            if (pool == null || pool.length == 0) throw new IOException(source + ": missing pool " + name);
+            for (UnitType type : pool) {
+                if (team[type.ordinal()] != Unit.Team.ENEMY) {
+                    throw new IOException(source + ": pool " + name + " lists " + type + ", which is not an enemy unit");
+                }
+            }
+        }
+        return new UnitDefinitions(stats, team, sprite, pools.get("enemy"), pools.get("elite"));
+    }
+
+    // --- Binary ---
+
+    /** The binary table as bytes, built on first use and kept. */
+    byte[] encoded() {
+        byte[] bytes = encoded;
+        if (bytes == null) {
+            ByteBuffer table = toBinary();
+            bytes = new byte[table.remaining()];
+            table.get(bytes);
+            encoded = bytes;
+        }
+        return bytes;
+    }
+
+    ByteBuffer toBinary() {
+        StringTable strings = new StringTable();
+        List<Integer> records = new ArrayList<>();
+        for (UnitType type : UnitType.values()) {
+            if (stats[type.ordinal()] != null) records.add(type.ordinal());
+        }
+        UnitType[][] pools = {enemyPool, elitePool};
+        String[] poolNames = {"enemy", "elite"};
+
+        int poolBytes = 0;
+        for (UnitType[] pool : pools) poolBytes += 8 + 4 * pool.length;
+        int poolOffset = HEADER_BYTES + records.size() * RECORD_BYTES;
+        int stringOffset = poolOffset + poolBytes;
+
+        // Refs first, so the string section size is known before allocating.
+        int[][] recordRefs = new int[records.size()][];
+        for (int r = 0; r < records.size(); r++) {
+            int t = records.get(r);
+            recordRefs[r] = new int[] {strings.ref(UnitType.values()[t].name()), strings.ref(sprite[t])};
+        }
+        int[][] poolRefs = new int[pools.length][];
+        for (int p = 0; p < pools.length; p++) {
+            poolRefs[p] = new int[pools[p].length + 1];
+            poolRefs[p][0] = strings.ref(poolNames[p]);
+            for (int i = 0; i < pools[p].length; i++) poolRefs[p][i + 1] = strings.ref(pools[p][i].name());
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(stringOffset + strings.size());
+        out.putInt(MAGIC);
+        out.put((byte) VERSION);
+        out.putInt(records.size());
+        out.putInt(pools.length);
+        out.putInt(poolOffset);
+        out.putInt(stringOffset);
+        for (int r = 0; r < records.size(); r++) {
+            int t = records.get(r);
+            UnitStats s = stats[t];
+            out.putInt(recordRefs[r][0]);
+            out.putInt(team[t].ordinal());
+            out.putInt(s.hp).putInt(s.damage).putInt(s.speed).putInt(s.attackInterval);
+            out.putInt(s.width).putInt(s.height).putInt(s.cost);
+            out.putInt(recordRefs[r][1]);
+        }
+        for (int[] refs : poolRefs) {
+            out.putInt(refs[0]);
+            out.putInt(refs.length - 1);
+            for (int i = 1; i < refs.length; i++) out.putInt(refs[i]);
+        }
+        strings.writeTo(out);
+        out.flip();
+        return out;
+    }
+
+    static UnitDefinitions fromBinary(ByteBuffer in, String source) throws IOException {
+        if (in.limit() < HEADER_BYTES || in.getInt(0) != MAGIC) {
+            throw new IOException("Not a unit table: " + source);
+        }
+        int version = in.get(4) & 0xFF;
+        if (version != VERSION) throw new IOException("Unsupported unit table version " + version);
+        int recordCount = in.getInt(5);
+        int poolCount = in.getInt(9);
+        int poolOffset = in.getInt(13);
+        int stringOffset = in.getInt(17);
+
+        int n = UnitType.values().length;
+        UnitStats[] stats = new UnitStats[n];
+        Unit.Team[] team = new Unit.Team[n];
+        String[] sprite = new String[n];
+        try {
+            for (int r = 0; r < recordCount; r++) {
+                int at = HEADER_BYTES + r * RECORD_BYTES;
+                int t = UnitType.valueOf(string(in, stringOffset, in.getInt(at))).ordinal();
+                team[t] = Unit.Team.values()[in.getInt(at + 4)];
+                stats[t] = checked(new UnitStats(in.getInt(at + 8), in.getInt(at + 12), in.getInt(at + 16),
+                        in.getInt(at + 20), in.getInt(at + 24), in.getInt(at + 28), in.getInt(at + 32)),
+                        "Corrupt unit table " + source + ": record " + r + ": ");
+                sprite[t] = string(in, stringOffset, in.getInt(at + 36));
+            }
+
+            Map<String, UnitType[]> pools = new LinkedHashMap<>();
+            int at = poolOffset;
+            for (int p = 0; p < poolCount; p++) {
+                String name = string(in, stringOffset, in.getInt(at));
+                UnitType[] members = new UnitType[in.getInt(at + 4)];
+                at += 8;
+                for (int i = 0; i < members.length; i++, at += 4) {
+                    members[i] = UnitType.valueOf(string(in, stringOffset, in.getInt(at)));
+                }
+                pools.put(name, members);
+            }
+            return validated(stats, team, sprite, pools, source);
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Corrupt unit table " + source + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static String string(ByteBuffer in, int section, int ref) {
+        int at = section + ref;
+        byte[] bytes = new byte[in.getShort(at) & 0xFFFF];
+        in.get(at + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Deduplicated strings with their byte offsets in the string section. */
+    private static final class StringTable {
+        private final Map<String, Integer> refs = new LinkedHashMap<>();
+        private int size;
+
+        int ref(String s) {
+            Integer ref = refs.get(s);
+            if (ref == null) {
+                ref = size;
+                refs.put(s, ref);
+                size += 2 + s.getBytes(StandardCharsets.UTF_8).length;
+            }
+            return ref;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void writeTo(ByteBuffer out) {
+            for (String s : refs.keySet()) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                out.putShort((short) bytes.length);
+                out.put(bytes);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: java UnitDefinitions units.txt [units.bin]");
+            System.exit(1);
+        }
+        Path text = Paths.get(args[0]);
+        Path binary = (args.length > 1) ? Paths.get(args[1]) : binaryFor(text);
+        compile(text, binary);
+        UnitDefinitions defs = map(binary);
+        int units = 0;
+        for (UnitStats s : defs.stats) if (s != null) units++;
+        System.out.printf("%s: %d units, %d bytes%n", binary, units, Files.size(binary));
+    }
+}
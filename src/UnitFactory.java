@@ -1,82 +1,146 @@
 import java.awt.Image;
-import java.util.EnumMap;
-import java.util.Map;
-import java.util.Random;
-
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Creates units from the current UnitDefinitions. The
+ * definitions can be swapped at any time (hot reload); each call reads the
+ * reference once and works from that set throughout.
+ */
 public class UnitFactory {
 
-    private static final String ASSETS = "C:\\Users\\My computer\\.vscode\\Oop\\Project\\src\\images\\";
-
-    private final Map<UnitType, UnitStats> playerStats = new EnumMap<>(UnitType.class);
-    private final Map<UnitType, String>    playerSprite = new EnumMap<>(UnitType.class);
-    
-    private final Map<UnitType, UnitStats> enemyStats = new EnumMap<>(UnitType.class);
-    private final Map<UnitType, String>    enemySprite = new EnumMap<>(UnitType.class);
+    private volatile UnitDefinitions definitions;
 
-    private final Random rng = new Random();
+    private final boolean loadSprites;
+    // Sprites handed to spawned units, by ordinal, filled once SpriteStore has them.
+    private final Image[] spawnSprites = new Image[UnitType.values().length];
+    private UnitDefinitions spawnSpritesFor;
 
     public UnitFactory() {
-        // ===== PLAYER UNITS =====
-        playerStats.put(UnitType.UNIT1, new UnitStats(50, 100, 2, 100, 40, 50, 1));
-        playerSprite.put(UnitType.UNIT1, ASSETS + "unit1.png");
+        this(true);
+    }
 
-        playerStats.put(UnitType.UNIT2,  new UnitStats( 150, 1, 1, 50, 50, 60, 25));
-        playerSprite.put(UnitType.UNIT2,  ASSETS + "unit2.png");
+    /** @param loadSprites false for headless runs that never draw units */
+    public UnitFactory(boolean loadSprites) {
+        this(UnitDefinitions.configured(), loadSprites);
+    }
 
-        playerStats.put(UnitType.UNIT3,    new UnitStats(30, 7, 2, 40, 40, 35, 30));
-        playerSprite.put(UnitType.UNIT3,    ASSETS + "unit3.png");
+    public UnitFactory(UnitDefinitions definitions, boolean loadSprites) {
+        this.definitions = definitions;
+        this.loadSprites = loadSprites;
+    }
 
-        playerStats.put(UnitType.UNIT4,   new UnitStats( 80, 5, 2, 35, 40, 40, 40));
-        playerSprite.put(UnitType.UNIT4,   ASSETS + "unit4.png");
+    public UnitDefinitions definitions() {
+        return definitions;
+    }
 
-        playerStats.put(UnitType.UNIT5,   new UnitStats(140, 10, 1, 60, 60, 60, 50));
-        playerSprite.put(UnitType.UNIT5,   ASSETS + "unit5.png");
+    /**
+     * Swaps in a new set of definitions. Units already in play keep the
+     * stats they spawned with; an engine picks the new set up at its next
+     * tick.
+     */
+    public void setDefinitions(UnitDefinitions definitions) {
+        this.definitions = definitions;
+    }
 
-        // ===== ENEMIES =====
-        enemyStats.put(UnitType.ENEMY1, new UnitStats(40, 4, 2, 35, 40, 40, 0));
-        enemySprite.put(UnitType.ENEMY1, ASSETS + "enemy1.png");
+    public int cost(UnitType type) {
+        UnitDefinitions d = definitions;
+        int t = type.ordinal();
+        return (d.team[t] == Unit.Team.PLAYER) ? d.stats[t].cost : 0;
+    }
 
-        enemyStats.put(UnitType.ENEMY2, new UnitStats(80, 2, 1, 50, 40, 50, 0));
-        enemySprite.put(UnitType.ENEMY2, ASSETS + "enemy2.png");
+    /** Stats for a type, or null if it is not defined. */
+    public UnitStats stats(UnitType type) {
+        return definitions.stats[type.ordinal()];
+    }
 
-        enemyStats.put(UnitType.ELITE1, new UnitStats(10, 30, 3, 150, 40, 40, 0));
-        enemySprite.put(UnitType.ELITE1, ASSETS + "elite1.png");
+    public Unit.Team team(UnitType type) {
+        Unit.Team team = definitions.team[type.ordinal()];
+        return (team != null) ? team : Unit.Team.ENEMY;
+    }
 
-        enemyStats.put(UnitType.ELITE2, new UnitStats(300, 15, 1, 75, 40, 60, 0));
-        enemySprite.put(UnitType.ELITE2, ASSETS + "elite2.png");
+    /** The sprite for a type, pre-scaled to its size, or null if missing or not loading sprites. */
+    public Image sprite(UnitType type) {
+        UnitDefinitions d = definitions;
+        UnitStats s = d.stats[type.ordinal()];
+        String path = d.sprite[type.ordinal()];
+        if (!loadSprites || s == null || path == null) return null;
+        return SpriteStore.get(path, s.width, s.height);
     }
 
-    public int cost(UnitType type) {
-        UnitStats s = playerStats.get(type);
-        return (s != null) ? s.cost : 0;
+    /**
+     * Decodes and scales every sprite this factory uses on the executor, one
+     * task per sprite. The cache is shared, so other factories, the atlas and
+     * spawns all find them there afterwards. Completes at once when the
+     * factory does not load sprites.
+     */
+    public CompletableFuture<Void> preloadSprites(Executor executor) {
+        List<CompletableFuture<Image>> loads = new ArrayList<>();
+        if (loadSprites) {
+            UnitDefinitions d = definitions;
+            for (UnitType type : UnitType.values()) {
+                UnitStats s = d.stats[type.ordinal()];
+                String path = d.sprite[type.ordinal()];
+                if (s != null && path != null) {
+                    loads.add(SpriteStore.preload(path, s.width, s.height, executor));
+                }
+            }
+        }
+        return CompletableFuture.allOf(loads.toArray(new CompletableFuture<?>[0]));
     }
 
+    /** A new unit of the type at full hp, or null if the type is not defined for that team. */
     public Unit create(UnitType type, Unit.Team team, int x, int y, int lane) {
-        final UnitStats stats;
-        final String spritePath;
-
-        if (team == Unit.Team.PLAYER) {
-            stats = playerStats.get(type);
-            spritePath = playerSprite.get(type);
-        } else {
-            stats = enemyStats.get(type);
-            spritePath = enemySprite.get(type);
-        }
-        if (stats == null) return null;
+        UnitDefinitions d = definitions;
+        int t = type.ordinal();
+        if (d.team[t] != team) return null;
 
-        Image img = (spritePath != null) ? SpriteStore.get(spritePath) : null;
-        Unit u = new Unit(x, y, team, stats, img);
+        Unit u = new Unit(x, y, team, type, d.stats[t], spawnSprite(d, t));
         u.lane = lane;
         return u;
     }
 
-    public Unit randomEnemy(int x, int y, int lane) {
-        UnitType t = rng.nextBoolean() ? UnitType.ENEMY1 : UnitType.ENEMY2;
-        return create(t, Unit.Team.ENEMY, x, y, lane);
+    /**
+     * The cached sprite for a spawn, or null while it is still loading:
+     * spawning never waits on a decode.
+     */
+    private Image spawnSprite(UnitDefinitions d, int t) {
+        if (spawnSpritesFor != d) {
+            Arrays.fill(spawnSprites, null);
+            spawnSpritesFor = d;
+        }
+        if (spawnSprites[t] == null && loadSprites && d.sprite[t] != null) {
+            spawnSprites[t] = SpriteStore.peek(d.sprite[t], d.stats[t].width, d.stats[t].height);
+        }
+        return spawnSprites[t];
+    }
+
+    /** GameEngine.POOL_ENEMY or POOL_ELITE for a type in that spawn pool, else -1. */
+    public int spawnPool(UnitType type) {
+        UnitDefinitions d = definitions;
+        for (UnitType t : d.enemyPool) if (t == type) return GameEngine.POOL_ENEMY;
+        for (UnitType t : d.elitePool) if (t == type) return GameEngine.POOL_ELITE;
+        return -1;
+    }
+
+    /** The types a spawn pool draws from, POOL_ENEMY or POOL_ELITE. */
+    public UnitType[] spawnPoolTypes(int pool) {
+        UnitDefinitions d = definitions;
+        return ((pool == GameEngine.POOL_ENEMY) ? d.enemyPool : d.elitePool).clone();
+    }
+
+    /** A type drawn from the enemy spawn pool. */
+    public UnitType randomEnemy(GameRandom rng) {
+        UnitType[] pool = definitions.enemyPool;
+        return pool[rng.nextInt(pool.length)];
     }
 
-    public Unit randomElite(int x, int y, int lane) {
-        UnitType t = rng.nextBoolean() ? UnitType.ELITE1 : UnitType.ELITE2;
-        return create(t, Unit.Team.ENEMY, x, y, lane);
+    /** A type drawn from the elite spawn pool. */
+    public UnitType randomElite(GameRandom rng) {
+        UnitType[] pool = definitions.elitePool;
+        return pool[rng.nextInt(pool.length)];
     }
 }
@@ -0,0 +1,114 @@
+import java.awt.*;
+import java.util.Arrays;
+
+/**
+ * Batched unit drawing for the panel. Units outside the clip, if there is
+ * one, are culled, the rest are bucketed by type so all sprites of one type
+ * are drawn together from the atlas, and then every HP bar is drawn in two
+ * passes (outlines, then fills) with one colour change each.
+ */
+public final class UnitRenderer {
+    private static final Color HP_FILL = new Color(0, 180, 60);
+
+    private SpriteAtlas atlas;
+    private final int typeCount = UnitType.values().length;
+    private final int[] typeStart = new int[typeCount + 1];
+    private final Rectangle clip = new Rectangle();
+
+    // Visible units of the current frame, then their draw order by type.
+    private int[] visX = new int[256], visTop = new int[256], visHp = new int[256], visType = new int[256];
+    private int[] order = new int[256];
+
+    public UnitRenderer(SpriteAtlas atlas) {
+        this.atlas = atlas;
+    }
+
+    /** Replaces the atlas, after the unit definitions were reloaded. EDT only. */
+    public void setAtlas(SpriteAtlas atlas) {
+        this.atlas = atlas;
+    }
+
+    /**
+     * Draws every unit in the lanes, interpolating x by alpha (0..1). The
+     * table must be the one the lanes were simulated with.
+     */
+    public void draw(Graphics g, LaneStore[] lanes, UnitTable table, double alpha) {
+        // getClipBounds leaves the rectangle as it was when there is no clip.
+        boolean clipped = g.getClip() != null;
+        if (clipped) g.getClipBounds(clip);
+        int visible = collectVisible(lanes, table, alpha, clipped);
+        sortByType(visible);
+
+        // Sprites, grouped by type
+        for (int k = 0; k < visible; k++) {
+            int i = order[k];
+            int t = visType[i];
+            if (atlas.has(t)) {
+                atlas.draw(g, t, visX[i], visTop[i]);
+            }
+        }
+        g.setColor(Color.GRAY);
+        for (int k = 0; k < visible; k++) {
+            int i = order[k];
+            int t = visType[i];
+            if (!atlas.has(t)) {
+                g.fillRect(visX[i], visTop[i], table.width[t], table.height[t]);
+            }
+        }
+
+        // HP bar outlines, then fills
+        g.setColor(Color.BLACK);
+        for (int i = 0; i < visible; i++) {
+            g.drawRect(visX[i], visTop[i] - 7, table.width[visType[i]], 6);
+        }
+        g.setColor(HP_FILL);
+        for (int i = 0; i < visible; i++) {
+            int t = visType[i];
+            int hpw = (int) Math.max(0, Math.round((visHp[i] / (double) table.hp[t]) * table.width[t]));
+            g.fillRect(visX[i] + 1, visTop[i] - 6, Math.max(0, hpw - 2), 5);
+        }
+    }
+
+    private int collectVisible(LaneStore[] lanes, UnitTable table, double alpha, boolean clipped) {
+        int n = 0;
+        for (LaneStore lane : lanes) {
+            for (int row = 0; row < lane.size(); row++) {
+                int t = lane.type(row);
+                int from = lane.prevX(row);
+                int x = from + (int) Math.round((lane.x(row) - from) * alpha);
+                int top = lane.y(row) - table.height[t];
+
+                // Bounds include the HP bar above the sprite.
+                if (clipped && (x + table.width[t] < clip.x || x > clip.x + clip.width
+                        || lane.y(row) < clip.y || top - 7 > clip.y + clip.height)) {
+                    continue;
+                }
+
+                if (n == visX.length) grow();
+                visX[n] = x;
+                visTop[n] = top;
+                visHp[n] = lane.hp(row);
+                visType[n] = t;
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /** Counting sort of the visible units by type into order[]. */
+    private void sortByType(int visible) {
+        Arrays.fill(typeStart, 0);
+        for (int i = 0; i < visible; i++) typeStart[visType[i] + 1]++;
+        for (int t = 0; t < typeCount; t++) typeStart[t + 1] += typeStart[t];
+        for (int i = 0; i < visible; i++) order[typeStart[visType[i]]++] = i;
+    }
+
+    private void grow() {
+        int capacity = visX.length * 2;
+        visX = Arrays.copyOf(visX, capacity);
+        visTop = Arrays.copyOf(visTop, capacity);
+        visHp = Arrays.copyOf(visHp, capacity);
+        visType = Arrays.copyOf(visType, capacity);
+        order = new int[capacity];
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * Per-type stats flattened into arrays indexed by UnitType.ordinal(), so the
+ * lane loops read stats with a plain array index instead of chasing a
+ * UnitStats reference per unit. Built from the UnitFactory definitions and
+ * never changed afterwards: when they are reloaded the engine builds a new
+ * table, so a renderer holding the old one still reads one consistent set.
+ */
+public final class UnitTable {
+    public final int[] hp;
+    public final int[] damage;           // already clamped to at least 1
+    public final int[] step;             // signed x movement per tick
+    public final int[] attackInterval;
+    public final int[] width, height;
+    public final byte[] team;            // Unit.Team ordinal
+
+    public UnitTable(UnitFactory factory, double speedScale) {
+        this(factory.definitions(), speedScale);
+    }
+
+    public UnitTable(UnitDefinitions definitions, double speedScale) {
+        int n = UnitType.values().length;
+        hp = new int[n];
+        damage = new int[n];
+        step = new int[n];
+        attackInterval = new int[n];
+        width = new int[n];
+        height = new int[n];
+        team = new byte[n];
+        for (int t = 0; t < n; t++) {
+            UnitStats s = definitions.stats[t];
+            if (s == null) continue;
+
+            Unit.Team side = definitions.team[t];
+            int speed = Math.max(1, (int) Math.round(s.speed * speedScale));
+            hp[t] = s.hp;
+            damage[t] = Math.max(1, s.damage);
+            step[t] = (side == Unit.Team.PLAYER) ? +speed : -speed;
+            attackInterval[t] = s.attackInterval;
+            width[t] = s.width;
+            height[t] = s.height;
+            team[t] = (byte) side.ordinal();
+        }
+    }
+
+    /** Largest unit width over all types, used to bound sweep windows. */
+    public int maxWidth() {
+        int max = 0;
+        for (int w : width) max = Math.max(max, w);
+        return max;
+    }
+}